@@ -0,0 +1,92 @@
+package org.zoobastiks.zrtp.api;
+
+import org.bukkit.Material;
+
+/**
+ * Колонна блоков в неизменяемом снимке чанка, которую проверяет стратегия поиска.
+ * Доступна из любого потока; обращаться к миру из стратегии нельзя.
+ */
+public interface ColumnView {
+
+    /**
+     * Получение минимальной высоты мира
+     * @return Минимальная Y-координата
+     */
+    int getMinY();
+
+    /**
+     * Получение максимальной высоты мира
+     * @return Максимальная Y-координата (не включительно)
+     */
+    int getMaxY();
+
+    /**
+     * Получение материала блока колонны
+     * @param y Y-координата
+     * @return Материал блока
+     */
+    Material getBlockType(int y);
+
+    /**
+     * Высота верхнего блока, блокирующего движение, без учета листвы
+     * @return Y-координата блока или getMinY() - 1 для пустой колонны
+     */
+    int getGroundHeight();
+
+    /**
+     * Высота верхнего блока, блокирующего движение, включая листву
+     * @return Y-координата блока или getMinY() - 1 для пустой колонны
+     */
+    int getCanopyHeight();
+
+    /**
+     * Можно ли стоять на позиции: опора безопасна, ноги и голова проходимы
+     * @param y Y-координата ног
+     * @return true, если позиция безопасна
+     */
+    boolean isSafeToStand(int y);
+
+    /**
+     * Является ли блок колонны жидкостью
+     * @param y Y-координата
+     * @return true для воды, лавы и блоков, всегда находящихся под водой
+     */
+    boolean isLiquid(int y);
+
+    /**
+     * Является ли блок колонны стволом дерева
+     * @param y Y-координата
+     * @return true для бревен
+     */
+    boolean isTrunk(int y);
+
+    /**
+     * Поиск безопасной высоты сверху вниз
+     * @param from Начальная Y-координата (включительно)
+     * @param to Конечная Y-координата (не включительно)
+     * @return Y-координата ног или -1
+     */
+    default int scanDown(int from, int to) {
+        for (int y = from; y > to; y--) {
+            if (isSafeToStand(y)) {
+                return y;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Поиск безопасной высоты снизу вверх
+     * @param from Начальная Y-координата (включительно)
+     * @param to Конечная Y-координата (не включительно)
+     * @return Y-координата ног или -1
+     */
+    default int scanUp(int from, int to) {
+        for (int y = from; y < to; y++) {
+            if (isSafeToStand(y)) {
+                return y;
+            }
+        }
+        return -1;
+    }
+}
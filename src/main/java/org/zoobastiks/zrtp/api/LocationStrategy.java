@@ -0,0 +1,40 @@
+package org.zoobastiks.zrtp.api;
+
+import org.bukkit.World;
+
+/**
+ * Стратегия поиска безопасной высоты в мире.
+ * Встроенные стратегии выбираются по типу мира (поверхность, Нижний мир, Край, собственный генератор),
+ * другие плагины могут зарегистрировать свои через RtpApi для мира или типа мира.
+ */
+public interface LocationStrategy {
+
+    /**
+     * Получение имени стратегии (для журнала и статистики)
+     * @return Имя стратегии
+     */
+    String getName();
+
+    /**
+     * Нижняя граница высоты ног, которую может вернуть стратегия (вызывается в основном потоке)
+     * @param world Мир
+     * @return Минимальная Y-координата ног
+     */
+    int getMinY(World world);
+
+    /**
+     * Верхняя граница высоты ног, которую может вернуть стратегия (вызывается в основном потоке)
+     * @param world Мир
+     * @return Максимальная Y-координата ног (включительно)
+     */
+    int getMaxY(World world);
+
+    /**
+     * Поиск безопасной высоты в колонне (вызывается вне основного потока)
+     * @param column Колонна блоков
+     * @param minY Нижняя граница высоты ног из getMinY
+     * @param maxY Верхняя граница высоты ног из getMaxY
+     * @return Y-координата ног или -1, если безопасное место не найдено
+     */
+    int findSafeY(ColumnView column, int minY, int maxY);
+}
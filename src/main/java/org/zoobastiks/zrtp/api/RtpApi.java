@@ -98,8 +98,31 @@ public class RtpApi {
         }
         
         // Используем внутренний метод для поиска локации
-        plugin.getTaskManager().findRandomLocation(world).thenAccept(future::complete);
+        // Ошибка или перегрузка поиска возвращается как null, чтобы результат всегда завершался
+        plugin.getTaskManager().findRandomLocation(world).whenComplete((location, ex) -> 
+            future.complete(ex == null ? location : null));
         
         return future;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Регистрация стратегии поиска высоты для мира.
+     * Стратегия мира важнее стратегии типа мира и встроенных стратегий.
+     * @param worldName Имя мира
+     * @param strategy Стратегия (null - вернуть встроенную)
+     */
+    public void registerStrategy(String worldName, LocationStrategy strategy) {
+        if (plugin == null) return;
+        plugin.getTaskManager().registerStrategy(worldName, strategy);
+    }
+    
+    /**
+     * Регистрация стратегии поиска высоты для типа мира
+     * @param environment Тип мира
+     * @param strategy Стратегия (null - вернуть встроенную)
+     */
+    public void registerStrategy(World.Environment environment, LocationStrategy strategy) {
+        if (plugin == null) return;
+        plugin.getTaskManager().registerStrategy(environment, strategy);
+    }
+}
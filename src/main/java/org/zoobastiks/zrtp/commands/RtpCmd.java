@@ -14,6 +14,11 @@ import org.jetbrains.annotations.Nullable;
 import org.zoobastiks.zrtp.Zrtp;
 import org.zoobastiks.zrtp.common.Lang;
 import org.zoobastiks.zrtp.config.WorldCfg;
+import org.zoobastiks.zrtp.tasks.ChunkTickets;
+import org.zoobastiks.zrtp.tasks.LoadGovernor;
+import org.zoobastiks.zrtp.tasks.LocationPool;
+import org.zoobastiks.zrtp.tasks.SearchExecutor;
+import org.zoobastiks.zrtp.tasks.TaskMgr;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -65,12 +70,22 @@ public class RtpCmd implements CommandExecutor, TabCompleter {
                 }
                 break;
                 
+            case "stats":
+                // Статистика поиска локаций
+                if (sender instanceof Player && !sender.hasPermission("rtp.stats")) {
+                    plugin.getLang().sendAdvancedMessage((Player) sender, Lang.Keys.NO_PERMISSION);
+                    return true;
+                }
+                
+                sendStats(sender);
+                break;
+                
             case "help":
                 // Показать помощь по плагину
                 if (sender instanceof Player) {
                     plugin.getLang().sendAdvancedMessage((Player) sender, Lang.Keys.HELP_MESSAGE);
                 } else {
-                    sender.sendMessage("Команды: /rtp <игрок> [мир] - Телепортация игрока, /rtp reload - Перезагрузка плагина");
+                    sender.sendMessage("Команды: /rtp <игрок> [мир] - Телепортация игрока, /rtp reload - Перезагрузка плагина, /rtp stats - Статистика поиска");
                 }
                 break;
                 
@@ -163,6 +178,55 @@ public class RtpCmd implements CommandExecutor, TabCompleter {
         return true;
     }
     
+    /**
+     * Отправка статистики пула локаций
+     * @param sender Получатель статистики
+     */
+    private void sendStats(CommandSender sender) {
+        LocationPool pool = plugin.getTaskManager().getLocationPool();
+        
+        sender.sendMessage("Статистика пула локаций (емкость " + pool.getCapacity() + " на мир):");
+        for (String worldName : plugin.getPluginConfig().getEnabledWorldNames()) {
+            long hits = pool.getHits(worldName);
+            long misses = pool.getMisses(worldName);
+            long total = hits + misses;
+            String hitRate = total > 0 ? String.format("%.1f%%", hits * 100.0 / total) : "-";
+            
+            int islands = plugin.getTaskManager().getEndIslands().getIslandChunks(worldName);
+            int generated = plugin.getTaskManager().getRegionIndex().getGeneratedChunks(worldName);
+            
+            int stored = pool.storedSize(worldName);
+            
+            sender.sendMessage(" " + worldName + ": в пуле " + pool.size(worldName) + 
+                               (stored > 0 ? " (ожидают повторной проверки " + stored + ")" : "") + 
+                               ", попадания " + hits + ", промахи " + misses + ", доля попаданий " + hitRate + 
+                               ", возвращено неиспользованных " + pool.getRecycled(worldName) + 
+                               ", устарело " + pool.getExpired(worldName) + 
+                               ", не прошло повторную проверку " + pool.getFailedChecks(worldName) + 
+                               ", удалено после изменения блоков " + pool.getInvalidated(worldName) + 
+                               ", неудачных областей " + plugin.getTaskManager().getFailureMap().countFailed(worldName) + 
+                               (islands >= 0 ? ", чанков с сушей " + islands : "") + 
+                               (generated >= 0 ? ", сгенерированных чанков " + generated : ""));
+            
+            String search = plugin.getTaskManager().getSearchStats().describe(worldName);
+            if (search != null) {
+                sender.sendMessage("   поиск: " + search);
+            }
+        }
+        
+        SearchExecutor executor = plugin.getTaskManager().getSearchExecutor();
+        sender.sendMessage("Поиск: выполняется " + executor.getInFlight() + "/" + executor.getMaxInFlight() + 
+                           ", в очереди " + executor.getQueued() + ", завершено " + executor.getCompleted() + 
+                           ", отклонено " + executor.getRejected());
+        LoadGovernor governor = plugin.getTaskManager().getGovernor();
+        int budget = governor.getBudget();
+        sender.sendMessage("Нагрузка: MSPT " + String.format("%.1f", governor.getMspt()) + 
+                           ", бюджет " + (budget >= 0 ? budget + " чанков/тик" : "без ограничения") + 
+                           ", отложено загрузок " + governor.getDeferred() + ", ожидают " + governor.getWaiting() + 
+                           (governor.isRefillPaused() ? ", пополнение пула приостановлено" : ""));
+        sender.sendMessage("Удерживается чанков тикетами: " + plugin.getTaskManager().getChunkTickets().getHeldChunks());
+    }
+    
     /**
      * Телепортация игрока в указанный мир
      * @param player Игрок для телепортации
@@ -202,34 +266,58 @@ public class RtpCmd implements CommandExecutor, TabCompleter {
             sender.sendMessage("Поиск места для телепортации в мире " + world.getName() + "...");
         }
         
-        // Поиск безопасной локации в указанном мире
-        plugin.getTaskManager().findRandomLocation(world).thenAccept(location -> {
-            if (location != null) {
-                // Выполняем телепортацию в основном потоке
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    // Телепортируем игрока
-                    player.teleport(location);
-                    plugin.getCooldowns().put(player.getUniqueId(), System.currentTimeMillis());
-                    
-                    // Отправляем сообщения
-                    plugin.getLang().sendAdvancedMessage(player, Lang.Keys.TELEPORT_SUCCESS);
-                    
-                    if (sender != player && sender instanceof Player) {
-                        Player senderPlayer = (Player) sender;
-                        
-                        plugin.getLang().sendAdvancedMessage(senderPlayer, Lang.Keys.PLAYER_TELEPORTED, 
-                            Placeholder.parsed("player", player.getName()),
-                            Placeholder.parsed("world", player.getWorld().getName())
-                        );
-                    } else if (sender != player) {
-                        sender.sendMessage("Игрок " + player.getName() + " телепортирован");
-                    }
-                });
-            } else {
+        // Поиск безопасной локации в указанном мире; результат обрабатывается в основном потоке
+        TaskMgr taskManager = plugin.getTaskManager();
+        taskManager.findRandomLocation(world).thenAcceptAsync(location -> {
+            if (location == null) {
                 // Не удалось найти безопасное место
                 plugin.getLang().sendAdvancedMessage(player, Lang.Keys.UNSAFE_LOCATION);
+                return;
             }
-        }).exceptionally(ex -> {
+            
+            // Чанки места удерживаются сразу, как только место найдено, и до прибытия игрока
+            ChunkTickets.Hold tickets = taskManager.getChunkTickets().hold(location);
+            
+            // Игрок вышел, пока шел поиск - найденное место возвращается в пул
+            if (!player.isOnline()) {
+                taskManager.getChunkTickets().release(tickets);
+                taskManager.getLocationPool().recycle(location);
+                return;
+            }
+            
+            // Телепортируем игрока асинхронно
+            taskManager.teleportAsync(player, location, tickets).thenAccept(success -> {
+                if (!success) {
+                    taskManager.getLocationPool().recycle(location);
+                    plugin.getLang().sendAdvancedMessage(player, Lang.Keys.UNSAFE_LOCATION);
+                    return;
+                }
+                plugin.getCooldowns().put(player.getUniqueId(), System.currentTimeMillis());
+                
+                // Отправляем сообщения
+                plugin.getLang().sendAdvancedMessage(player, Lang.Keys.TELEPORT_SUCCESS);
+                
+                if (sender != player && sender instanceof Player) {
+                    Player senderPlayer = (Player) sender;
+                    
+                    plugin.getLang().sendAdvancedMessage(senderPlayer, Lang.Keys.PLAYER_TELEPORTED, 
+                        Placeholder.parsed("player", player.getName()),
+                        Placeholder.parsed("world", player.getWorld().getName())
+                    );
+                } else if (sender != player) {
+                    sender.sendMessage("Игрок " + player.getName() + " телепортирован");
+                }
+            });
+        }, taskManager.getMainExecutor()).exceptionally(ex -> {
+            // Исполнитель поиска перегружен - просим повторить позже
+            if (TaskMgr.isSearchRejected(ex)) {
+                plugin.getLang().sendAdvancedMessage(player, Lang.Keys.SEARCH_BUSY);
+                if (sender != player) {
+                    sender.sendMessage("Поиск локаций перегружен, попробуйте позже");
+                }
+                return null;
+            }
+            
             plugin.log(Level.WARNING, "Ошибка при телепортации игрока " + player.getName() + " в мир " + worldName, ex);
             if (sender instanceof Player) {
                 Player senderPlayer = (Player) sender;
@@ -317,6 +405,9 @@ public class RtpCmd implements CommandExecutor, TabCompleter {
             if (sender.hasPermission("rtp.reload")) {
                 completions.add("reload");
             }
+            if (sender.hasPermission("rtp.stats")) {
+                completions.add("stats");
+            }
             completions.add("help");
             
             // Добавляем имена игроков
@@ -53,6 +53,7 @@ public class Lang {
         NO_PERMISSION("no-permission"),
         COOLDOWN("cooldown"),
         UNSAFE_LOCATION("unsafe-location"),
+        SEARCH_BUSY("search-busy"),
         WORLD_DISABLED("world-disabled"),
         WORLD_NOT_CONFIGURED("world-not-configured"),
         NOT_ENOUGH_MONEY("not-enough-money"),
@@ -155,6 +156,7 @@ public class Lang {
         defaults.put(Keys.NO_PERMISSION, "<gradient:#FF5555:#FF0000>У вас нет разрешения на использование этой команды.</gradient>");
         defaults.put(Keys.COOLDOWN, "<gradient:#FFA500:#FF8C00>Подождите {time} секунд перед следующей телепортацией.</gradient>");
         defaults.put(Keys.UNSAFE_LOCATION, "<gradient:#FF5555:#FF0000>Не удалось найти безопасное место для телепортации.</gradient>");
+        defaults.put(Keys.SEARCH_BUSY, "<gradient:#FFA500:#FF8C00>Сейчас слишком много запросов телепортации. Попробуйте через несколько секунд.</gradient>");
         defaults.put(Keys.WORLD_DISABLED, "<gradient:#FF5555:#FF0000>Телепортация в этом мире отключена.</gradient>");
         defaults.put(Keys.WORLD_NOT_CONFIGURED, "<gradient:#FF5555:#FF0000>Телепортация в этом мире не настроена.</gradient>");
         defaults.put(Keys.NOT_ENOUGH_MONEY, "<gradient:#FF5555:#FF0000>Недостаточно денег для телепортации. Требуется: {price}</gradient>");
@@ -27,6 +27,11 @@ public class Cfg {
     private int defaultDelay = 5;
     private int defaultCooldown = 30;
     private double defaultPrice = 0.0;
+    private int defaultSearchParallelism = 4;
+    private WorldCfg.Shape defaultShape = WorldCfg.Shape.CIRCLE;
+    private WorldCfg.Distribution defaultDistribution = WorldCfg.Distribution.RANDOM;
+    private WorldCfg.Generation defaultGeneration = WorldCfg.Generation.ANY;
+    private double defaultGeneratedRatio = 0.8;
     private String language = "ru_RU";
     private boolean debug = false;
     
@@ -36,6 +41,9 @@ public class Cfg {
     // Настройки эффектов телепортации
     private TeleportEffectsCfg teleportEffectsConfig;
     
+    // Настройки поиска локаций
+    private SearchCfg searchConfig;
+    
     // Настройки эффектов после телепортации
     private PostTeleportEffectsCfg postTeleportEffectsConfig;
     private PostTeleportEffectsMessages postTeleportEffectsMessages;
@@ -63,6 +71,7 @@ public class Cfg {
         loadDefaults();
         loadWorldConfigurations();
         loadTeleportEffectsConfig();
+        loadSearchConfig();
         
         // Загрузка postTeleportEffectsConfig будет выполнена позже,
         // после инициализации Lang в Zrtp.onEnable()
@@ -77,6 +86,13 @@ public class Cfg {
         defaultDelay = config.getInt("defaults.delay", 5);
         defaultCooldown = config.getInt("defaults.cooldown", 30);
         defaultPrice = config.getDouble("defaults.price", 0.0);
+        defaultSearchParallelism = config.getInt("defaults.search-parallelism", 4);
+        defaultShape = WorldCfg.Shape.fromString(config.getString("defaults.shape"), WorldCfg.Shape.CIRCLE);
+        defaultDistribution = WorldCfg.Distribution.fromString(config.getString("defaults.distribution"), 
+                                                               WorldCfg.Distribution.RANDOM);
+        defaultGeneration = WorldCfg.Generation.fromString(config.getString("defaults.generation"), 
+                                                           WorldCfg.Generation.ANY);
+        defaultGeneratedRatio = config.getDouble("defaults.generated-ratio", 0.8);
         language = config.getString("language", "ru_RU");
         debug = config.getBoolean("debug", false);
     }
@@ -106,6 +122,19 @@ public class Cfg {
                     List<String> forbiddenBiomes = worldSection.getStringList("forbidden-biomes");
                     worldCfg.setForbiddenBiomes(new HashSet<>(forbiddenBiomes));
                     
+                    // Количество одновременно проверяемых кандидатов
+                    worldCfg.setSearchParallelism(worldSection.getInt("search-parallelism", defaultSearchParallelism));
+                    
+                    // Форма области и распределение случайных точек
+                    worldCfg.setShape(WorldCfg.Shape.fromString(worldSection.getString("shape"), defaultShape));
+                    worldCfg.setDistribution(WorldCfg.Distribution.fromString(worldSection.getString("distribution"), 
+                                                                              defaultDistribution));
+                    
+                    // Политика генерации чанков
+                    worldCfg.setGeneration(WorldCfg.Generation.fromString(worldSection.getString("generation"), 
+                                                                          defaultGeneration));
+                    worldCfg.setGeneratedRatio(worldSection.getDouble("generated-ratio", defaultGeneratedRatio));
+                    
                     worldConfigs.put(worldName, worldCfg);
                 }
             }
@@ -120,6 +149,13 @@ public class Cfg {
         teleportEffectsConfig = TeleportEffectsCfg.fromConfig(teleportEffectsSection);
     }
     
+    /**
+     * Загрузка настроек поиска локаций
+     */
+    private void loadSearchConfig() {
+        searchConfig = SearchCfg.fromConfig(config.getConfigurationSection("search"));
+    }
+    
     /**
      * Загрузка настроек эффектов после телепортации
      */
@@ -165,6 +201,7 @@ public class Cfg {
         loadDefaults();
         loadWorldConfigurations();
         loadTeleportEffectsConfig();
+        loadSearchConfig();
         
         // Сначала нужно перезагрузить Lang
         if (plugin.getLang() != null) {
@@ -181,8 +218,16 @@ public class Cfg {
      * @return Конфигурация мира или настройки по умолчанию
      */
     public WorldCfg getWorldConfig(String worldName) {
-        return worldConfigs.getOrDefault(worldName, 
-            new WorldCfg(defaultMinRadius, defaultMaxRadius, defaultDelay, defaultCooldown, defaultPrice, true, null));
+        WorldCfg worldCfg = worldConfigs.get(worldName);
+        if (worldCfg == null) {
+            worldCfg = new WorldCfg(defaultMinRadius, defaultMaxRadius, defaultDelay, defaultCooldown, defaultPrice, true, null);
+            worldCfg.setSearchParallelism(defaultSearchParallelism);
+            worldCfg.setShape(defaultShape);
+            worldCfg.setDistribution(defaultDistribution);
+            worldCfg.setGeneration(defaultGeneration);
+            worldCfg.setGeneratedRatio(defaultGeneratedRatio);
+        }
+        return worldCfg;
     }
     
     /**
@@ -193,6 +238,14 @@ public class Cfg {
         return teleportEffectsConfig;
     }
     
+    /**
+     * Получение настроек поиска локаций
+     * @return Конфигурация поиска локаций
+     */
+    public SearchCfg getSearchConfig() {
+        return searchConfig;
+    }
+    
     /**
      * Получение настроек эффектов после телепортации
      * @return Конфигурация эффектов после телепортации
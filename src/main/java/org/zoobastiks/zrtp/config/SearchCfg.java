@@ -0,0 +1,383 @@
+package org.zoobastiks.zrtp.config;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Класс для хранения настроек поиска локаций
+ */
+public class SearchCfg {
+    private static final Logger LOGGER = Bukkit.getLogger();
+
+    // Максимальное количество локаций в пуле для каждого мира
+    private int poolSize = 10;
+
+    // Интервал пополнения пула (в тиках)
+    private int poolRefillInterval = 600;
+
+    // Пополнение пула по регионам: кандидаты группируются по файлам регионов
+    private boolean regionOrderedRefill = false;
+
+    // Сколько чанков полного региона проверяется пополнением перед переходом к следующему
+    private int refillRegionChunks = 16;
+
+    // Через сколько секунд после проверки локация пула проверяется заново (0 - не проверяется)
+    private int poolTtl = 300;
+
+    // Шаг между дополнительными местами, собираемыми из одного чанка (0 - не собирать)
+    private int harvestSpacing = 4;
+
+    // Максимальное расстояние от случайной точки до выбранного места (в блоках)
+    private int harvestMaxDistance = 24;
+
+    // Сколько колец уже загруженных соседних чанков проверяется, если в чанке точки нет места
+    private int harvestNeighborChunks = 1;
+
+    // Количество потоков для проверки снимков чанков
+    private int searchThreads = 2;
+
+    // Максимальное количество одновременных поисков
+    private int maxInFlight = 8;
+
+    // Максимальное количество поисков, ожидающих в очереди
+    private int searchQueueSize = 32;
+
+    // Окно объединения одновременных запросов (в тиках, 0 - без объединения)
+    private int coalesceWindow = 1;
+
+    // Радиус кольца чанков, удерживаемых вокруг места назначения
+    private int ticketRadius = 1;
+
+    // Через сколько секунд после прибытия снимаются тикеты
+    private int ticketReleaseDelay = 5;
+
+    // Время жизни поколения карты неудачных областей (в минутах, 0 - карта выключена)
+    private int failureDecay = 360;
+
+    // Предварительная проверка чанков по файлам регионов
+    private boolean prescreen = true;
+
+    // Ограничение загрузки чанков по нагрузке сервера
+    private boolean governorEnabled = true;
+
+    // Сколько чанков поиск может запросить за тик
+    private int chunksPerTick = 2;
+
+    // MSPT, при котором приостанавливается пополнение пула
+    private double refillPauseMspt = 40.0;
+
+    // MSPT, при котором ограничиваются поиски игроков
+    private double throttleMspt = 48.0;
+
+    // Подбор попыток и параллельности поиска по статистике мира
+    private boolean adaptive = true;
+
+    // Доля успешных кандидатов, ниже которой живые поиски приостанавливаются (0 - не приостанавливать)
+    private double breakerMinSuccess = 0.02;
+
+    // Через сколько секунд приостановленные поиски пробуются снова
+    private int breakerCooldown = 300;
+
+    // Дополнительные опасные материалы
+    private final Set<Material> extraUnsafeMaterials = EnumSet.noneOf(Material.class);
+
+    // Можно ли стоять на падающих блоках (песок, гравий)
+    private boolean allowFallingBlocks = false;
+
+    // Можно ли стоять на листве
+    private boolean allowLeaves = false;
+
+    /**
+     * Загрузка настроек поиска из секции конфигурации
+     * @param section Секция конфигурации "search"
+     * @return Настройки поиска (значения по умолчанию, если секция не указана)
+     */
+    public static SearchCfg fromConfig(ConfigurationSection section) {
+        SearchCfg cfg = new SearchCfg();
+        if (section == null) {
+            return cfg;
+        }
+
+        ConfigurationSection pool = section.getConfigurationSection("pool");
+        if (pool != null) {
+            cfg.poolSize = Math.max(0, pool.getInt("size", 10));
+            cfg.poolRefillInterval = Math.max(20, pool.getInt("refill-interval", 600));
+            cfg.regionOrderedRefill = "region".equalsIgnoreCase(pool.getString("refill-order", "random"));
+            cfg.refillRegionChunks = Math.max(1, Math.min(1024, pool.getInt("region-chunks", 16)));
+            cfg.poolTtl = Math.max(0, pool.getInt("ttl", 300));
+        }
+
+        ConfigurationSection harvest = section.getConfigurationSection("harvest");
+        if (harvest != null) {
+            cfg.harvestSpacing = Math.max(0, Math.min(16, harvest.getInt("spacing", 4)));
+            cfg.harvestMaxDistance = Math.max(1, Math.min(48, harvest.getInt("max-distance", 24)));
+            cfg.harvestNeighborChunks = Math.max(0, Math.min(2, harvest.getInt("neighbor-chunks", 1)));
+        }
+
+        ConfigurationSection executor = section.getConfigurationSection("executor");
+        if (executor != null) {
+            cfg.searchThreads = Math.max(1, executor.getInt("threads", 2));
+            cfg.maxInFlight = Math.max(1, executor.getInt("max-in-flight", 8));
+            cfg.searchQueueSize = Math.max(0, executor.getInt("queue-size", 32));
+        }
+
+        cfg.coalesceWindow = Math.max(0, section.getInt("coalesce-window", 1));
+
+        ConfigurationSection tickets = section.getConfigurationSection("tickets");
+        if (tickets != null) {
+            cfg.ticketRadius = Math.max(0, Math.min(3, tickets.getInt("radius", 1)));
+            cfg.ticketReleaseDelay = Math.max(0, tickets.getInt("release-delay", 5));
+        }
+
+        ConfigurationSection failureMap = section.getConfigurationSection("failure-map");
+        if (failureMap != null) {
+            cfg.failureDecay = Math.max(0, failureMap.getInt("decay", 360));
+        }
+
+        cfg.prescreen = section.getBoolean("prescreen", true);
+
+        ConfigurationSection governor = section.getConfigurationSection("governor");
+        if (governor != null) {
+            cfg.governorEnabled = governor.getBoolean("enabled", true);
+            cfg.chunksPerTick = Math.max(1, governor.getInt("chunks-per-tick", 2));
+            cfg.refillPauseMspt = Math.max(1.0, governor.getDouble("refill-pause-mspt", 40.0));
+            cfg.throttleMspt = Math.max(cfg.refillPauseMspt, governor.getDouble("throttle-mspt", 48.0));
+        }
+
+        ConfigurationSection adaptive = section.getConfigurationSection("adaptive");
+        if (adaptive != null) {
+            cfg.adaptive = adaptive.getBoolean("enabled", true);
+            cfg.breakerMinSuccess = Math.max(0.0, Math.min(1.0, adaptive.getDouble("breaker-min-success", 0.02)));
+            cfg.breakerCooldown = Math.max(10, adaptive.getInt("breaker-cooldown", 300));
+        }
+
+        ConfigurationSection safety = section.getConfigurationSection("safety");
+        if (safety != null) {
+            for (String name : safety.getStringList("extra-unsafe")) {
+                Material material = Material.matchMaterial(name);
+                if (material != null) {
+                    cfg.extraUnsafeMaterials.add(material);
+                } else {
+                    LOGGER.warning("Неизвестный материал в search.safety.extra-unsafe: " + name);
+                }
+            }
+            cfg.allowFallingBlocks = safety.getBoolean("allow-falling-blocks", false);
+            cfg.allowLeaves = "allow".equalsIgnoreCase(safety.getString("leaves", "avoid"));
+        }
+
+        return cfg;
+    }
+
+    /**
+     * Получение максимального размера пула локаций для мира
+     * @return Размер пула
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Получение интервала пополнения пула
+     * @return Интервал в тиках
+     */
+    public int getPoolRefillInterval() {
+        return poolRefillInterval;
+    }
+
+    /**
+     * Пополняется ли пул по регионам
+     * @return true, если кандидаты пополнения группируются по файлам регионов
+     */
+    public boolean isRegionOrderedRefill() {
+        return regionOrderedRefill;
+    }
+
+    /**
+     * Получение количества чанков полного региона, проверяемых пополнением подряд
+     * @return Количество чанков
+     */
+    public int getRefillRegionChunks() {
+        return refillRegionChunks;
+    }
+
+    /**
+     * Получение срока, после которого локация пула проверяется заново перед выдачей
+     * @return Срок в секундах (0 - не проверяется)
+     */
+    public int getPoolTtl() {
+        return poolTtl;
+    }
+
+    /**
+     * Получение шага между дополнительными местами, собираемыми из одного чанка
+     * @return Шаг в блоках (0 - дополнительные места не собираются)
+     */
+    public int getHarvestSpacing() {
+        return harvestSpacing;
+    }
+
+    /**
+     * Получение максимального расстояния от случайной точки до выбранного места
+     * @return Расстояние в блоках
+     */
+    public int getHarvestMaxDistance() {
+        return harvestMaxDistance;
+    }
+
+    /**
+     * Получение количества колец соседних чанков для поиска рядом с точкой
+     * @return Количество колец (0 - соседние чанки не проверяются)
+     */
+    public int getHarvestNeighborChunks() {
+        return harvestNeighborChunks;
+    }
+
+    /**
+     * Получение количества потоков для проверки снимков чанков
+     * @return Количество потоков
+     */
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    /**
+     * Получение максимального количества одновременных поисков
+     * @return Количество поисков
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Получение максимального количества поисков в очереди
+     * @return Длина очереди
+     */
+    public int getSearchQueueSize() {
+        return searchQueueSize;
+    }
+
+    /**
+     * Получение окна объединения одновременных запросов
+     * @return Длина окна в тиках (0 - без объединения)
+     */
+    public int getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    /**
+     * Получение радиуса кольца чанков вокруг места назначения
+     * @return Радиус в чанках (0 - только сам чанк)
+     */
+    public int getTicketRadius() {
+        return ticketRadius;
+    }
+
+    /**
+     * Получение задержки снятия тикетов после прибытия
+     * @return Задержка в секундах
+     */
+    public int getTicketReleaseDelay() {
+        return ticketReleaseDelay;
+    }
+
+    /**
+     * Получение времени жизни поколения карты неудачных областей
+     * @return Время в минутах (0 - карта выключена)
+     */
+    public int getFailureDecay() {
+        return failureDecay;
+    }
+
+    /**
+     * Включена ли предварительная проверка чанков по файлам регионов
+     * @return true, если сохраненные чанки проверяются до загрузки
+     */
+    public boolean isPrescreen() {
+        return prescreen;
+    }
+
+    /**
+     * Включено ли ограничение загрузки чанков по нагрузке сервера
+     * @return true, если ограничение включено
+     */
+    public boolean isGovernorEnabled() {
+        return governorEnabled;
+    }
+
+    /**
+     * Получение бюджета загрузки чанков
+     * @return Количество чанков за тик
+     */
+    public int getChunksPerTick() {
+        return chunksPerTick;
+    }
+
+    /**
+     * Получение MSPT, при котором приостанавливается пополнение пула
+     * @return Время тика в миллисекундах
+     */
+    public double getRefillPauseMspt() {
+        return refillPauseMspt;
+    }
+
+    /**
+     * Получение MSPT, при котором ограничиваются поиски игроков
+     * @return Время тика в миллисекундах
+     */
+    public double getThrottleMspt() {
+        return throttleMspt;
+    }
+
+    /**
+     * Подбираются ли попытки и параллельность поиска по статистике мира
+     * @return true, если подстройка включена
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Получение доли успешных кандидатов, ниже которой живые поиски приостанавливаются
+     * @return Доля от 0 до 1 (0 - поиски не приостанавливаются)
+     */
+    public double getBreakerMinSuccess() {
+        return breakerMinSuccess;
+    }
+
+    /**
+     * Получение паузы приостановленных поисков
+     * @return Время в секундах
+     */
+    public int getBreakerCooldown() {
+        return breakerCooldown;
+    }
+
+    /**
+     * Получение дополнительных опасных материалов
+     * @return Множество материалов
+     */
+    public Set<Material> getExtraUnsafeMaterials() {
+        return extraUnsafeMaterials;
+    }
+
+    /**
+     * Можно ли стоять на падающих блоках
+     * @return true, если песок, гравий и подобные блоки считаются безопасными
+     */
+    public boolean isAllowFallingBlocks() {
+        return allowFallingBlocks;
+    }
+
+    /**
+     * Можно ли стоять на листве
+     * @return true, если листва считается обычным твердым блоком
+     */
+    public boolean isAllowLeaves() {
+        return allowLeaves;
+    }
+}
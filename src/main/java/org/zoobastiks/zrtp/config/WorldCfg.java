@@ -17,6 +17,11 @@ public class WorldCfg {
     private final boolean enabled;
     private final Location center;
     private Set<String> forbiddenBiomes = new HashSet<>();
+    private int searchParallelism = 4;
+    private Shape shape = Shape.CIRCLE;
+    private Distribution distribution = Distribution.RANDOM;
+    private Generation generation = Generation.ANY;
+    private double generatedRatio = 0.8;
     
     /**
      * Конструктор конфигурации мира
@@ -111,6 +116,86 @@ public class WorldCfg {
         this.forbiddenBiomes = forbiddenBiomes;
     }
     
+    /**
+     * Получение количества кандидатов, проверяемых одновременно при поиске локации
+     * @return Количество кандидатов
+     */
+    public int getSearchParallelism() {
+        return searchParallelism;
+    }
+    
+    /**
+     * Установка количества кандидатов, проверяемых одновременно при поиске локации
+     * @param searchParallelism Количество кандидатов (не меньше 1)
+     */
+    public void setSearchParallelism(int searchParallelism) {
+        this.searchParallelism = Math.max(1, searchParallelism);
+    }
+    
+    /**
+     * Получение формы области телепортации
+     * @return Форма области
+     */
+    public Shape getShape() {
+        return shape;
+    }
+    
+    /**
+     * Установка формы области телепортации
+     * @param shape Форма области
+     */
+    public void setShape(Shape shape) {
+        this.shape = shape;
+    }
+    
+    /**
+     * Получение распределения случайных точек
+     * @return Распределение
+     */
+    public Distribution getDistribution() {
+        return distribution;
+    }
+    
+    /**
+     * Установка распределения случайных точек
+     * @param distribution Распределение
+     */
+    public void setDistribution(Distribution distribution) {
+        this.distribution = distribution;
+    }
+    
+    /**
+     * Получение политики генерации чанков
+     * @return Политика генерации
+     */
+    public Generation getGeneration() {
+        return generation;
+    }
+    
+    /**
+     * Установка политики генерации чанков
+     * @param generation Политика генерации
+     */
+    public void setGeneration(Generation generation) {
+        this.generation = generation;
+    }
+    
+    /**
+     * Получение доли кандидатов из уже сгенерированных чанков (для prefer-generated)
+     * @return Доля от 0 до 1
+     */
+    public double getGeneratedRatio() {
+        return generatedRatio;
+    }
+    
+    /**
+     * Установка доли кандидатов из уже сгенерированных чанков
+     * @param generatedRatio Доля от 0 до 1
+     */
+    public void setGeneratedRatio(double generatedRatio) {
+        this.generatedRatio = Math.max(0.0, Math.min(1.0, generatedRatio));
+    }
+    
     /**
      * Проверка, запрещен ли биом в данном мире
      * @param biomeName Имя биома
@@ -119,4 +204,100 @@ public class WorldCfg {
     public boolean isBiomeForbidden(String biomeName) {
         return forbiddenBiomes.contains(biomeName);
     }
+    
+    /**
+     * Проверка, находится ли точка в пределах радиуса телепортации мира
+     * @param x X-координата
+     * @param z Z-координата
+     * @return true, если расстояние до центра между минимальным и максимальным радиусом
+     *         (для квадрата - по большей из осей)
+     */
+    public boolean isWithinRadius(double x, double z) {
+        double dx = x - (center != null ? center.getX() : 0);
+        double dz = z - (center != null ? center.getZ() : 0);
+        if (shape == Shape.SQUARE) {
+            double distance = Math.max(Math.abs(dx), Math.abs(dz));
+            return distance >= minRadius && distance <= maxRadius;
+        }
+        double distanceSquared = dx * dx + dz * dz;
+        return distanceSquared >= (double) minRadius * minRadius && distanceSquared <= (double) maxRadius * maxRadius;
+    }
+    
+    /**
+     * Форма области телепортации
+     */
+    public enum Shape {
+        // Кольцо между минимальным и максимальным радиусом
+        CIRCLE,
+        // Квадратная рамка: половина стороны между минимальным и максимальным радиусом
+        SQUARE;
+        
+        /**
+         * Разбор формы из конфигурации
+         * @param name Значение из конфигурации
+         * @param def Значение по умолчанию
+         * @return Форма области
+         */
+        public static Shape fromString(String name, Shape def) {
+            if (name == null) return def;
+            switch (name.trim().toLowerCase()) {
+                case "circle": return CIRCLE;
+                case "square": return SQUARE;
+                default: return def;
+            }
+        }
+    }
+    
+    /**
+     * Распределение случайных точек в области телепортации
+     */
+    public enum Distribution {
+        // Независимые случайные точки, равномерные по площади
+        RANDOM,
+        // Последовательность с низким расхождением: соседние телепортации расходятся по всей области
+        LOW_DISCREPANCY;
+        
+        /**
+         * Разбор распределения из конфигурации
+         * @param name Значение из конфигурации
+         * @param def Значение по умолчанию
+         * @return Распределение
+         */
+        public static Distribution fromString(String name, Distribution def) {
+            if (name == null) return def;
+            switch (name.trim().toLowerCase()) {
+                case "random": return RANDOM;
+                case "low-discrepancy": return LOW_DISCREPANCY;
+                default: return def;
+            }
+        }
+    }
+    
+    /**
+     * Политика генерации чанков при поиске
+     */
+    public enum Generation {
+        // Кандидаты в любых чанках, несуществующие генерируются
+        ANY,
+        // Часть кандидатов берется из уже сгенерированных чанков, остальные - в любых
+        PREFER_GENERATED,
+        // Только уже сгенерированные чанки, поиск никогда не запускает генерацию
+        GENERATED_ONLY;
+        
+        /**
+         * Разбор политики генерации из конфигурации
+         * @param name Значение из конфигурации
+         * @param def Значение по умолчанию
+         * @return Политика генерации
+         */
+        public static Generation fromString(String name, Generation def) {
+            if (name == null) return def;
+            switch (name.trim().toLowerCase()) {
+                case "any": return ANY;
+                case "prefer-generated": return PREFER_GENERATED;
+                case "generated-only": return GENERATED_ONLY;
+                default: return def;
+            }
+        }
+    }
 } 
\ No newline at end of file
@@ -1,16 +1,23 @@
 package org.zoobastiks.zrtp.events;
 
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Sound;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.zoobastiks.zrtp.Zrtp;
 import org.zoobastiks.zrtp.common.Lang;
 import org.zoobastiks.zrtp.common.TeleportEffectsMessages;
@@ -21,6 +28,7 @@ import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.title.Title;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -183,4 +191,78 @@ public class EventsListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         // Больше не телепортируем игрока при входе на сервер
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Обработка события загрузки чанка
+     * @param event Событие загрузки чанка
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        // Новый чанк (isNewChunk) попадает в файл региона только при сохранении,
+        // поэтому индекс сгенерированных чанков узнает о нем отсюда
+        Chunk chunk = event.getChunk();
+        plugin.getTaskManager().getRegionIndex().markGenerated(event.getWorld(), chunk.getX(), chunk.getZ());
+    }
+    
+    /**
+     * Обработка события установки блока
+     * @param event Событие установки блока
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        invalidatePool(event.getBlock());
+    }
+    
+    /**
+     * Обработка события разрушения блока
+     * @param event Событие разрушения блока
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        invalidatePool(event.getBlock());
+    }
+    
+    /**
+     * Обработка взрыва сущности (крипер, динамит, кристалл Энда)
+     * @param event Событие взрыва
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        invalidatePool(event.blockList());
+    }
+    
+    /**
+     * Обработка взрыва блока (кровать в Нижнем мире, якорь возрождения)
+     * @param event Событие взрыва
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        invalidatePool(event.blockList());
+    }
+    
+    /**
+     * Удаление из пула мест чанка измененного блока: проверенное место могло стать небезопасным
+     * @param block Измененный блок
+     */
+    private void invalidatePool(Block block) {
+        plugin.getTaskManager().getLocationPool().invalidate(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
+    }
+    
+    /**
+     * Удаление из пула мест чанков взорванных блоков
+     * @param blocks Взорванные блоки
+     */
+    private void invalidatePool(List<Block> blocks) {
+        // Соседние блоки взрыва почти всегда в одном чанке, повторная проверка индекса пула не нужна
+        int lastX = Integer.MIN_VALUE;
+        int lastZ = Integer.MIN_VALUE;
+        for (Block block : blocks) {
+            int chunkX = block.getX() >> 4;
+            int chunkZ = block.getZ() >> 4;
+            if (chunkX == lastX && chunkZ == lastZ) continue;
+            lastX = chunkX;
+            lastZ = chunkZ;
+            plugin.getTaskManager().getLocationPool().invalidate(block.getWorld().getName(), chunkX, chunkZ);
+        }
+    }
+}
\ No newline at end of file
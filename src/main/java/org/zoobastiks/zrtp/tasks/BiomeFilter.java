@@ -0,0 +1,97 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.generator.BiomeProvider;
+import org.bukkit.generator.WorldInfo;
+import org.zoobastiks.zrtp.Zrtp;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Фильтр запрещенных биомов мира.
+ * Имена биомов из конфигурации один раз сопоставляются с объектами реестра,
+ * после чего проверка - поиск по ссылке без сравнения строк.
+ * Для незагруженных чанков биом предсказывается источником биомов генератора,
+ * поэтому точки в запрещенных биомах отбрасываются до загрузки чанка.
+ */
+public class BiomeFilter {
+    private final Set<Biome> forbidden = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Ключи запрещенных биомов для данных, прочитанных с диска
+    private final Set<String> forbiddenKeys = new HashSet<>();
+    private final WorldInfo worldInfo;
+    private final BiomeProvider provider;
+    private final int sampleY;
+
+    /**
+     * Создание фильтра биомов для мира
+     * @param plugin Экземпляр плагина (для журнала)
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     */
+    public BiomeFilter(Zrtp plugin, World world, WorldCfg worldConfig) {
+        for (String name : worldConfig.getForbiddenBiomes()) {
+            NamespacedKey key = NamespacedKey.fromString(name.toLowerCase(Locale.ROOT));
+            Biome biome = key != null ? Registry.BIOME.get(key) : null;
+            if (biome != null) {
+                forbidden.add(biome);
+                forbiddenKeys.add(key.toString());
+            } else {
+                plugin.log(Level.WARNING, "Неизвестный биом в forbidden-biomes мира " + world.getName() + ": " + name);
+            }
+        }
+
+        // Собственный генератор мира важнее ванильного источника биомов
+        BiomeProvider custom = world.getBiomeProvider();
+        this.provider = custom != null ? custom : world.vanillaBiomeProvider();
+        this.worldInfo = world;
+        this.sampleY = world.getSeaLevel();
+    }
+
+    /**
+     * Проверка, есть ли в мире запрещенные биомы
+     * @return true, если фильтровать нечего
+     */
+    public boolean isEmpty() {
+        return forbidden.isEmpty();
+    }
+
+    /**
+     * Проверка биома по снимку чанка
+     * @param biome Биом
+     * @return true, если биом запрещен
+     */
+    public boolean isForbidden(Biome biome) {
+        return biome != null && forbidden.contains(biome);
+    }
+
+    /**
+     * Проверка биома по ключу из данных чанка на диске
+     * @param key Ключ биома (например, minecraft:ocean)
+     * @return true, если биом запрещен
+     */
+    public boolean isForbidden(String key) {
+        return forbiddenKeys.contains(key);
+    }
+
+    /**
+     * Предсказание биома в точке без загрузки чанка
+     * @param x X-координата
+     * @param z Z-координата
+     * @return true, если в точке ожидается запрещенный биом
+     */
+    public boolean isPredictedForbidden(int x, int z) {
+        if (forbidden.isEmpty() || provider == null) {
+            return false;
+        }
+        return isForbidden(provider.getBiome(worldInfo, x, sampleY, z));
+    }
+}
@@ -0,0 +1,132 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Неизменяемый снимок чанка вместе с картами высот поверхности.
+ * В основном потоке только копируется снимок с картой высот WORLD_SURFACE;
+ * высоты MOTION_BLOCKING и MOTION_BLOCKING_NO_LEAVES рассчитываются по снимку при первом обращении,
+ * то есть в потоке поиска. Вместе со снимком хранится сканер мира, выбранный в момент снимка.
+ * Безопасен для чтения из любого потока.
+ */
+public class ChunkSurface {
+    private final ChunkSnapshot snapshot;
+    private final ColumnScanner scanner;
+    private final MaterialTable materials;
+    private final int chunkX;
+    private final int chunkZ;
+    private final int minY;
+    private final int maxY;
+
+    // Высота верхнего блока без учета листвы (MOTION_BLOCKING_NO_LEAVES), индекс (z << 4) | x
+    private final int[] groundHeights = new int[256];
+
+    // Высота верхнего блока с учетом листвы (MOTION_BLOCKING), индекс (z << 4) | x
+    private final int[] canopyHeights = new int[256];
+
+    // Рассчитаны ли карты высот
+    private volatile boolean heightsReady;
+
+    /**
+     * Создание снимка поверхности загруженного чанка (вызывать в основном потоке)
+     * @param chunk Загруженный чанк
+     * @param includeBiome Копировать ли в снимок данные о биомах
+     * @param scanner Сканер мира; его таблица материалов используется для расчета карт высот
+     */
+    public ChunkSurface(Chunk chunk, boolean includeBiome, ColumnScanner scanner) {
+        this.snapshot = chunk.getChunkSnapshot(true, includeBiome, false);
+        this.scanner = scanner;
+        this.materials = scanner.getMaterials();
+        this.chunkX = chunk.getX();
+        this.chunkZ = chunk.getZ();
+        World world = chunk.getWorld();
+        this.minY = world.getMinHeight();
+        this.maxY = world.getMaxHeight();
+    }
+
+    /**
+     * Получение снимка блоков чанка
+     * @return Снимок чанка
+     */
+    public ChunkSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Получение сканера мира, выбранного при создании снимка
+     * @return Сканер колонн
+     */
+    public ColumnScanner getScanner() {
+        return scanner;
+    }
+
+    /**
+     * Получение X-координаты чанка
+     * @return X-координата чанка
+     */
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    /**
+     * Получение Z-координаты чанка
+     * @return Z-координата чанка
+     */
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * Высота верхнего блока, блокирующего движение, без учета листвы
+     * @param x Локальная X-координата (0-15)
+     * @param z Локальная Z-координата (0-15)
+     * @return Y-координата блока или minY - 1 для пустой колонны
+     */
+    public int getGroundHeight(int x, int z) {
+        if (!heightsReady) computeHeights();
+        return groundHeights[(z << 4) | x];
+    }
+
+    /**
+     * Высота верхнего блока, блокирующего движение, включая листву
+     * @param x Локальная X-координата (0-15)
+     * @param z Локальная Z-координата (0-15)
+     * @return Y-координата блока или minY - 1 для пустой колонны
+     */
+    public int getCanopyHeight(int x, int z) {
+        if (!heightsReady) computeHeights();
+        return canopyHeights[(z << 4) | x];
+    }
+
+    /**
+     * Расчет карт высот по снимку: спуск от верхнего непустого блока (WORLD_SURFACE)
+     * до первого блока, останавливающего движение. Обычно это несколько блоков травы или листвы.
+     */
+    private synchronized void computeHeights() {
+        if (heightsReady) return;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int index = (z << 4) | x;
+                int canopy = minY - 1;
+                int ground = minY - 1;
+                // Верхняя граница зависит от версии сервера (блок или воздух над ним), поэтому берется с запасом
+                int top = Math.min(snapshot.getHighestBlockYAt(x, z), maxY - 1);
+                for (int y = top; y >= minY; y--) {
+                    Material material = snapshot.getBlockType(x, y, z);
+                    if (!materials.isMotionBlocking(material)) continue;
+                    if (canopy < minY) canopy = y;
+                    if (!materials.isLeaves(material)) {
+                        ground = y;
+                        break;
+                    }
+                }
+                groundHeights[index] = ground;
+                canopyHeights[index] = canopy;
+            }
+        }
+        heightsReady = true;
+    }
+}
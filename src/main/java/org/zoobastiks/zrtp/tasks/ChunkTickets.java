@@ -0,0 +1,148 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.Zrtp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Удержание чанков места назначения плагинными тикетами.
+ * Чанк и кольцо вокруг него остаются загруженными от выбора места до нескольких секунд после прибытия.
+ * Тикеты плагина не считают повторные добавления, поэтому счетчик ведется здесь.
+ * Все методы, кроме releaseLater, вызываются в основном потоке.
+ */
+public class ChunkTickets {
+    private final Zrtp plugin;
+
+    // Счетчики удержаний по миру и ключу чанка
+    private final Map<String, Map<Long, Integer>> counts = new HashMap<>();
+
+    // Номер набора тикетов; удержания из прошлого набора после releaseAll игнорируются
+    private int epoch;
+
+    private volatile int radius = 1;
+    private volatile int releaseDelayTicks = 100;
+
+    /**
+     * Конструктор менеджера тикетов
+     * @param plugin Экземпляр плагина
+     */
+    public ChunkTickets(Zrtp plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Установка параметров удержания
+     * @param radius Радиус кольца чанков вокруг места (0 - только сам чанк)
+     * @param releaseDelaySeconds Через сколько секунд после прибытия тикеты снимаются
+     */
+    public void configure(int radius, int releaseDelaySeconds) {
+        this.radius = radius;
+        this.releaseDelayTicks = releaseDelaySeconds * 20;
+    }
+
+    /**
+     * Удержание чанков вокруг локации
+     * @param location Локация
+     * @return Удержание для последующего снятия
+     */
+    public Hold hold(Location location) {
+        World world = location.getWorld();
+        Hold hold = new Hold(world, location.getBlockX() >> 4, location.getBlockZ() >> 4, radius, epoch);
+        Map<Long, Integer> worldCounts = counts.computeIfAbsent(world.getName(), k -> new HashMap<>());
+        for (int dx = -hold.radius; dx <= hold.radius; dx++) {
+            for (int dz = -hold.radius; dz <= hold.radius; dz++) {
+                int x = hold.chunkX + dx;
+                int z = hold.chunkZ + dz;
+                // Тикет добавляется только первым удержанием чанка
+                if (worldCounts.merge(key(x, z), 1, Integer::sum) == 1) {
+                    world.addPluginChunkTicket(x, z, plugin);
+                }
+            }
+        }
+        return hold;
+    }
+
+    /**
+     * Снятие удержания (повторный вызов ничего не делает)
+     * @param hold Удержание
+     */
+    public void release(Hold hold) {
+        if (hold == null || hold.released) return;
+        hold.released = true;
+        if (hold.epoch != epoch) return;
+
+        Map<Long, Integer> worldCounts = counts.get(hold.world.getName());
+        if (worldCounts == null) return;
+        for (int dx = -hold.radius; dx <= hold.radius; dx++) {
+            for (int dz = -hold.radius; dz <= hold.radius; dz++) {
+                int x = hold.chunkX + dx;
+                int z = hold.chunkZ + dz;
+                Integer left = worldCounts.computeIfPresent(key(x, z), (k, count) -> count > 1 ? count - 1 : null);
+                // Тикет снимается последним удержанием чанка
+                if (left == null) {
+                    hold.world.removePluginChunkTicket(x, z, plugin);
+                }
+            }
+        }
+    }
+
+    /**
+     * Снятие удержания с задержкой после прибытия (можно вызывать из любого потока)
+     * @param hold Удержание
+     */
+    public void releaseLater(Hold hold) {
+        if (hold == null) return;
+        Bukkit.getScheduler().runTaskLater(plugin, () -> release(hold), Math.max(1, releaseDelayTicks));
+    }
+
+    /**
+     * Получение количества удерживаемых чанков
+     * @return Количество чанков во всех мирах
+     */
+    public int getHeldChunks() {
+        int total = 0;
+        for (Map<Long, Integer> worldCounts : counts.values()) {
+            total += worldCounts.size();
+        }
+        return total;
+    }
+
+    /**
+     * Снятие всех тикетов плагина
+     */
+    public void releaseAll() {
+        for (World world : Bukkit.getWorlds()) {
+            world.removePluginChunkTickets(plugin);
+        }
+        counts.clear();
+        epoch++;
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Удержание чанков вокруг одного места назначения
+     */
+    public static class Hold {
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int radius;
+        private final int epoch;
+        private boolean released;
+
+        private Hold(World world, int chunkX, int chunkZ, int radius, int epoch) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.radius = radius;
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.api.ColumnView;
+import org.zoobastiks.zrtp.api.LocationStrategy;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Поиск безопасной высоты в колонне блоков по неизменяемому снимку чанка.
+ * Высоту в колонне выбирает стратегия мира, сканер проверяет результат и собирает места по чанку.
+ * Все данные мира копируются в конструкторе (в основном потоке),
+ * поэтому методы проверки можно вызывать из любого потока.
+ */
+public class ColumnScanner {
+    // Соседние колонны, проверяемые на опасные блоки
+    private static final int[][] NEIGHBOURS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private final int minY;
+    private final int maxY;
+    private final MaterialTable materials;
+    private final LocationStrategy strategy;
+
+    // Границы высоты ног, объявленные стратегией
+    private final int strategyMinY;
+    private final int strategyMaxY;
+
+    /**
+     * Создание сканера для мира (вызывать в основном потоке)
+     * @param world Мир
+     * @param materials Таблица безопасности материалов
+     * @param strategy Стратегия поиска высоты
+     */
+    public ColumnScanner(World world, MaterialTable materials, LocationStrategy strategy) {
+        this.materials = materials;
+        this.strategy = strategy;
+        this.minY = world.getMinHeight();
+        this.maxY = world.getMaxHeight();
+        this.strategyMinY = Math.max(minY + 1, strategy.getMinY(world));
+        this.strategyMaxY = Math.min(maxY - 2, strategy.getMaxY(world));
+    }
+
+    /**
+     * Получение таблицы материалов сканера
+     * @return Таблица безопасности материалов
+     */
+    MaterialTable getMaterials() {
+        return materials;
+    }
+
+    /**
+     * Поиск безопасной высоты в колонне стратегией мира.
+     * Результат вне объявленных границ или небезопасный результат отбрасывается.
+     */
+    private int findSafeY(SnapshotColumn column) {
+        int y = strategy.findSafeY(column, strategyMinY, strategyMaxY);
+        if (y < strategyMinY || y > strategyMaxY || !column.isSafeToStand(y)) {
+            return -1;
+        }
+        return y;
+    }
+
+    /**
+     * Проверка всех 256 колонн чанка за один проход.
+     * Выбирает лучшую колонну для текущего запроса (ближайшую к выбранной точке, не дальше maxDistance)
+     * и дополнительные места с шагом spacing для пополнения пула.
+     * @param surface Снимок чанка с картами высот
+     * @param targetX X-координата выбранной точки (мировая, может быть и вне чанка)
+     * @param targetZ Z-координата выбранной точки (мировая, может быть и вне чанка)
+     * @param worldConfig Конфигурация мира (для проверки радиуса)
+     * @param biomes Фильтр запрещенных биомов (снимок должен содержать биомы, если фильтр не пуст)
+     * @param spacing Минимальный шаг между дополнительными местами в блоках (0 - без дополнительных мест)
+     * @param maxDistance Максимальное расстояние от выбранной точки до лучшей колонны в блоках
+     * @return Результат проверки чанка
+     */
+    public HarvestResult harvest(ChunkSurface surface, int targetX, int targetZ, WorldCfg worldConfig,
+                                 BiomeFilter biomes, int spacing, int maxDistance) {
+        ChunkSnapshot snapshot = surface.getSnapshot();
+        boolean checkBiomes = !biomes.isEmpty();
+        int baseX = surface.getChunkX() << 4;
+        int baseZ = surface.getChunkZ() << 4;
+
+        // Безопасная высота каждой колонны, -1 если колонна небезопасна, вне радиуса или в запрещенном биоме
+        int[] safeY = new int[256];
+        int safeColumns = 0;
+        SnapshotColumn column = new SnapshotColumn(surface);
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int y = -1;
+                if (worldConfig.isWithinRadius(baseX + x + 0.5, baseZ + z + 0.5)) {
+                    column.moveTo(x, z);
+                    y = findSafeY(column);
+                }
+                if (y != -1 && checkBiomes && biomes.isForbidden(snapshot.getBiome(x, y, z))) {
+                    y = -1;
+                }
+                safeY[(z << 4) | x] = y;
+                if (y != -1) safeColumns++;
+            }
+        }
+
+        // Лучшая колонна - ближайшая к выбранной точке, чтобы сохранить случайность.
+        // Обычно неудачная колонна (ствол дерева, маленький пруд, кактус) в нескольких блоках от подходящей
+        int bestIndex = -1;
+        int bestDistance = maxDistance * maxDistance + 1;
+        for (int index = 0; index < 256; index++) {
+            if (safeY[index] == -1) continue;
+            int dx = baseX + (index & 15) - targetX;
+            int dz = baseZ + (index >> 4) - targetZ;
+            int distance = dx * dx + dz * dz;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestIndex = index;
+            }
+        }
+
+        Spot best = bestIndex != -1
+            ? new Spot(baseX + (bestIndex & 15), safeY[bestIndex], baseZ + (bestIndex >> 4)) : null;
+
+        // Дополнительные места: по одной безопасной колонне в каждой ячейке spacing x spacing
+        List<Spot> extra = new ArrayList<>();
+        if (spacing > 0) {
+            for (int cellZ = 0; cellZ < 16; cellZ += spacing) {
+                for (int cellX = 0; cellX < 16; cellX += spacing) {
+                    int index = findInCell(safeY, cellX, cellZ, spacing, bestIndex);
+                    if (index != -1) {
+                        extra.add(new Spot(baseX + (index & 15), safeY[index], baseZ + (index >> 4)));
+                    }
+                }
+            }
+        }
+
+        return new HarvestResult(best, extra, safeColumns);
+    }
+
+    /**
+     * Повторная проверка ранее найденного места по новому снимку чанка
+     * @param surface Снимок чанка места
+     * @param x Мировая X-координата блока
+     * @param y Y-координата ног
+     * @param z Мировая Z-координата блока
+     * @param worldConfig Конфигурация мира
+     * @param biomes Фильтр запрещенных биомов (снимок должен содержать биомы, если фильтр не пуст)
+     * @return true, если стратегия мира по-прежнему выбирает в колонне эту же высоту
+     */
+    public boolean verify(ChunkSurface surface, int x, int y, int z, WorldCfg worldConfig, BiomeFilter biomes) {
+        if (!worldConfig.isWithinRadius(x + 0.5, z + 0.5)) {
+            return false;
+        }
+        SnapshotColumn column = new SnapshotColumn(surface);
+        column.moveTo(x & 15, z & 15);
+        if (findSafeY(column) != y) {
+            return false;
+        }
+        return biomes.isEmpty() || !biomes.isForbidden(surface.getSnapshot().getBiome(x & 15, y, z & 15));
+    }
+
+    /**
+     * Поиск безопасной колонны в ячейке, ближайшей к центру ячейки
+     * @return Индекс колонны или -1, если в ячейке нет подходящих колонн или в ней лучшая колонна
+     */
+    private int findInCell(int[] safeY, int cellX, int cellZ, int spacing, int bestIndex) {
+        int maxX = Math.min(16, cellX + spacing);
+        int maxZ = Math.min(16, cellZ + spacing);
+
+        // Ячейка с лучшей колонной уже занята текущим запросом
+        if (bestIndex != -1) {
+            int bx = bestIndex & 15;
+            int bz = bestIndex >> 4;
+            if (bx >= cellX && bx < maxX && bz >= cellZ && bz < maxZ) {
+                return -1;
+            }
+        }
+
+        // Удвоенные координаты центра, чтобы не использовать дробные числа
+        int centerX2 = cellX + maxX - 1;
+        int centerZ2 = cellZ + maxZ - 1;
+        int found = -1;
+        int foundDistance = Integer.MAX_VALUE;
+        for (int z = cellZ; z < maxZ; z++) {
+            for (int x = cellX; x < maxX; x++) {
+                int index = (z << 4) | x;
+                if (safeY[index] == -1) continue;
+                int dx = x * 2 - centerX2;
+                int dz = z * 2 - centerZ2;
+                int distance = dx * dx + dz * dz;
+                if (distance < foundDistance) {
+                    foundDistance = distance;
+                    found = index;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Проверяет, безопасно ли стоять на указанной позиции
+     * (блок ниже - безопасная опора, блоки ног и головы проходимы,
+     * рядом с опорой, ногами и головой нет опасных блоков)
+     * @param snapshot Снимок чанка
+     * @param x Локальная X-координата
+     * @param y Y-координата (позиция ног)
+     * @param z Локальная Z-координата
+     * @return true, если позиция безопасна для телепортации
+     */
+    public boolean isSafeToStand(ChunkSnapshot snapshot, int x, int y, int z) {
+        // Блок ниже и место для головы должны быть внутри мира
+        if (y - 1 < minY || y + 1 >= maxY) {
+            return false;
+        }
+
+        if (!materials.isFloor(snapshot.getBlockType(x, y - 1, z))
+                || !materials.isPassable(snapshot.getBlockType(x, y, z))
+                || !materials.isPassable(snapshot.getBlockType(x, y + 1, z))) {
+            return false;
+        }
+
+        // Лава, огонь, кактус и другие опасные блоки не должны быть рядом с игроком.
+        // Соседей за краем снимка проверить нельзя, поэтому крайние колонны чанка не выбираются
+        for (int[] offset : NEIGHBOURS) {
+            int nx = x + offset[0];
+            int nz = z + offset[1];
+            if (nx < 0 || nx > 15 || nz < 0 || nz > 15) {
+                return false;
+            }
+            for (int ny = y - 1; ny <= y + 1; ny++) {
+                if (materials.isHazard(snapshot.getBlockType(nx, ny, nz))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Колонна снимка чанка для стратегии поиска; перемещается по колоннам без создания новых объектов
+     */
+    private class SnapshotColumn implements ColumnView {
+        private final ChunkSurface surface;
+        private final ChunkSnapshot snapshot;
+        private int x;
+        private int z;
+
+        SnapshotColumn(ChunkSurface surface) {
+            this.surface = surface;
+            this.snapshot = surface.getSnapshot();
+        }
+
+        void moveTo(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        public int getMinY() {
+            return minY;
+        }
+
+        @Override
+        public int getMaxY() {
+            return maxY;
+        }
+
+        @Override
+        public Material getBlockType(int y) {
+            return snapshot.getBlockType(x, y, z);
+        }
+
+        @Override
+        public int getGroundHeight() {
+            return surface.getGroundHeight(x, z);
+        }
+
+        @Override
+        public int getCanopyHeight() {
+            return surface.getCanopyHeight(x, z);
+        }
+
+        @Override
+        public boolean isSafeToStand(int y) {
+            return ColumnScanner.this.isSafeToStand(snapshot, x, y, z);
+        }
+
+        @Override
+        public boolean isLiquid(int y) {
+            return y >= minY && y < maxY && materials.isLiquid(snapshot.getBlockType(x, y, z));
+        }
+
+        @Override
+        public boolean isTrunk(int y) {
+            return y >= minY && y < maxY && materials.isTrunk(snapshot.getBlockType(x, y, z));
+        }
+    }
+
+    /**
+     * Безопасное место в мировых координатах блока (Y - позиция ног)
+     */
+    public static class Spot {
+        private final int x;
+        private final int y;
+        private final int z;
+
+        public Spot(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getZ() {
+            return z;
+        }
+    }
+
+    /**
+     * Результат проверки всех колонн чанка
+     */
+    public static class HarvestResult {
+        private final Spot best;
+        private final List<Spot> extra;
+        private final int safeColumns;
+
+        public HarvestResult(Spot best, List<Spot> extra, int safeColumns) {
+            this.best = best;
+            this.extra = extra;
+            this.safeColumns = safeColumns;
+        }
+
+        /**
+         * Лучшее место для текущего запроса
+         * @return Место или null, если рядом с выбранной точкой нет безопасных колонн
+         */
+        public Spot getBest() {
+            return best;
+        }
+
+        /**
+         * Дополнительные места для пула, прореженные по заданному шагу
+         * @return Список мест
+         */
+        public List<Spot> getExtra() {
+            return extra;
+        }
+
+        /**
+         * Количество безопасных колонн в чанке
+         * @return Количество колонн (0 - в чанке нет ни одного места)
+         */
+        public int getSafeColumns() {
+            return safeColumns;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.Zrtp;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+
+/**
+ * Индекс островов Энда.
+ * Почти вся область телепортации в Энде - пустота, поэтому случайные точки там почти всегда неудачны.
+ * Индекс рассчитывает по сиду мира ту же функцию плотности островов, что и ванильный генератор,
+ * и отмечает чанки, в которых есть суша. Кандидаты в Энде выбираются только из отмеченных чанков.
+ * Битовая карта чанков сохраняется в папке плагина и пересчитывается только при смене сида или радиуса.
+ */
+public class EndIslands {
+    // Заголовок файла: магическое число, версия, сид, начало сетки, сторона, порог
+    private static final int MAGIC = 0x5A524549; // "ZREI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    // Ограничение на размер сетки (2 МБ); для больших радиусов индекс не строится
+    private static final long MAX_CHUNKS = 1L << 24;
+
+    // Минимальное значение высоты острова. Суша начинается со значения 8,
+    // запас отбрасывает рваные края, где колонна может оказаться пустой
+    private static final int THRESHOLD = 24;
+
+    private final Zrtp plugin;
+    private final File folder;
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор индекса островов
+     * @param plugin Экземпляр плагина
+     */
+    public EndIslands(Zrtp plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "end-islands");
+    }
+
+    /**
+     * Подготовка индекса мира (вызывать в основном потоке).
+     * Индекс строится асинхронно; пока он не готов, кандидаты выбираются обычным способом.
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     */
+    public void prepare(World world, WorldCfg worldConfig) {
+        // Острова совпадают с ванильными только без стороннего генератора
+        if (world.getEnvironment() != World.Environment.THE_END || world.getGenerator() != null) return;
+
+        Index current = indexes.get(world.getName());
+        if (current != null && current.matches(world.getSeed(), worldConfig)) return;
+
+        Index index = new Index(world.getSeed(), worldConfig);
+        if ((long) index.side * index.side > MAX_CHUNKS) {
+            plugin.log(Level.WARNING, "Радиус мира " + world.getName() + " слишком велик для индекса островов Энда");
+            return;
+        }
+        indexes.put(world.getName(), index);
+
+        String worldName = world.getName();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long start = System.currentTimeMillis();
+            boolean loaded = index.build(new File(folder, worldName + ".bin"));
+            if (indexes.get(worldName) == index) {
+                plugin.log(Level.INFO, "Индекс островов Энда для мира " + worldName + (loaded ? " загружен" : " построен") +
+                           " за " + (System.currentTimeMillis() - start) + " мс, чанков с сушей: " + index.getIslandChunks());
+            }
+        });
+    }
+
+    /**
+     * Выбор случайного чанка с сушей в области телепортации
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @return Локация с Y=100 или null, если индекс мира не готов или не применим
+     */
+    public Location sample(World world, WorldCfg worldConfig) {
+        Index index = indexes.get(world.getName());
+        if (index == null || !index.matches(world.getSeed(), worldConfig)) return null;
+
+        int[] chunks = index.chunks;
+        if (chunks == null || chunks.length == 0) return null;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int cell = chunks[random.nextInt(chunks.length)];
+        int x = ((index.originX + cell % index.side) << 4) + random.nextInt(16);
+        int z = ((index.originZ + cell / index.side) << 4) + random.nextInt(16);
+        return new Location(world, x, 100, z);
+    }
+
+    /**
+     * Проверка, что в чанке заведомо нет суши
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @return true, если индекс мира готов и чанка нет среди чанков с сушей в области
+     */
+    public boolean isBarren(World world, WorldCfg worldConfig, int chunkX, int chunkZ) {
+        Index index = indexes.get(world.getName());
+        if (index == null || !index.matches(world.getSeed(), worldConfig)) return false;
+
+        int[] chunks = index.chunks;
+        if (chunks == null) return false;
+
+        int cx = chunkX - index.originX;
+        int cz = chunkZ - index.originZ;
+        if (cx < 0 || cz < 0 || cx >= index.side || cz >= index.side) return true;
+        // Номера ячеек собираются по возрастанию
+        return Arrays.binarySearch(chunks, cz * index.side + cx) < 0;
+    }
+
+    /**
+     * Получение количества чанков с сушей в области телепортации мира
+     * @param worldName Имя мира
+     * @return Количество чанков или -1, если индекса нет или он еще строится
+     */
+    public int getIslandChunks(String worldName) {
+        Index index = indexes.get(worldName);
+        return index != null ? index.getIslandChunks() : -1;
+    }
+
+    /**
+     * Сброс индексов всех миров (файлы остаются и будут загружены повторно)
+     */
+    public void clear() {
+        indexes.clear();
+    }
+
+    /**
+     * Индекс одного мира: битовая карта чанков квадрата максимального радиуса
+     * и список чанков с сушей внутри области телепортации
+     */
+    private class Index {
+        private final long seed;
+        private final WorldCfg config;
+        private final int centerX;
+        private final int centerZ;
+        private final int minRadius;
+        private final int maxRadius;
+        private final WorldCfg.Shape shape;
+        private final int originX;
+        private final int originZ;
+        private final int side;
+
+        // Номера ячеек чанков с сушей; null, пока индекс строится
+        private volatile int[] chunks;
+
+        Index(long seed, WorldCfg config) {
+            this.seed = seed;
+            this.config = config;
+            Location center = config.getCenter();
+            this.centerX = center != null ? center.getBlockX() : 0;
+            this.centerZ = center != null ? center.getBlockZ() : 0;
+            this.minRadius = config.getMinRadius();
+            this.maxRadius = config.getMaxRadius();
+            this.shape = config.getShape();
+            this.originX = (centerX - maxRadius) >> 4;
+            this.originZ = (centerZ - maxRadius) >> 4;
+            this.side = ((centerX + maxRadius) >> 4) - originX + 1;
+        }
+
+        /**
+         * Совпадает ли индекс с сидом и областью телепортации мира.
+         * При изменении области битовая карта читается из файла, если сетка не изменилась,
+         * а список чанков собирается заново
+         */
+        boolean matches(long seed, WorldCfg config) {
+            Location center = config.getCenter();
+            return this.seed == seed
+                && minRadius == config.getMinRadius() && maxRadius == config.getMaxRadius()
+                && shape == config.getShape()
+                && centerX == (center != null ? center.getBlockX() : 0)
+                && centerZ == (center != null ? center.getBlockZ() : 0);
+        }
+
+        int getIslandChunks() {
+            int[] current = chunks;
+            return current != null ? current.length : -1;
+        }
+
+        /**
+         * Загрузка битовой карты из файла или ее расчет, затем сбор списка чанков
+         * @return true, если карта загружена из файла
+         */
+        boolean build(File file) {
+            int bytes = (int) (((long) side * side + 7) >> 3);
+            byte[] bits = read(file, bytes);
+            boolean loaded = bits != null;
+            if (!loaded) {
+                bits = new byte[bytes];
+                compute(bits);
+                write(file, bits);
+            }
+
+            int count = 0;
+            int[] cells = new int[1024];
+            for (int cell = 0; cell < side * side; cell++) {
+                if ((bits[cell >> 3] & (1 << (cell & 7))) == 0) continue;
+                // Чанк подходит, если его центр внутри области телепортации
+                double x = ((originX + cell % side) << 4) + 8;
+                double z = ((originZ + cell / side) << 4) + 8;
+                if (!config.isWithinRadius(x, z)) continue;
+                if (count == cells.length) {
+                    cells = Arrays.copyOf(cells, count * 2);
+                }
+                cells[count++] = cell;
+            }
+            chunks = Arrays.copyOf(cells, count);
+            return loaded;
+        }
+
+        /**
+         * Расчет карты по функции плотности островов Энда.
+         * Значение высоты считается в ячейках 8x8 блоков: центральный остров - конус от начала координат,
+         * внешние острова - конусы вокруг узлов сетки 16x16 блоков, в которых шум меньше -0.9.
+         * Поэтому вместо расчета каждой ячейки достаточно один раз проверить шум в каждом узле
+         * и отметить чанки в радиусе найденных островов.
+         */
+        private void compute(byte[] bits) {
+            IslandNoise noise = new IslandNoise(seed);
+
+            // Центральный остров: 100 - 8 * расстояние
+            stamp(bits, 0, 0, 8.0F);
+
+            // Узел (o, p) влияет на ячейки не дальше 92 / 9 ячеек, то есть не дальше 6 узлов
+            for (long p = originZ - 6; p <= originZ + side + 6; p++) {
+                for (long o = originX - 6; o <= originX + side + 6; o++) {
+                    if (o * o + p * p <= 4096L || noise.getValue(o, p) >= -0.9F) continue;
+                    float slope = (Math.abs((float) o) * 3439.0F + Math.abs((float) p) * 147.0F) % 13.0F + 9.0F;
+                    stamp(bits, (int) o * 2, (int) p * 2, slope);
+                }
+            }
+        }
+
+        /**
+         * Отметка чанков конуса острова с вершиной в ячейке (cellX, cellZ)
+         */
+        private void stamp(byte[] bits, int cellX, int cellZ, float slope) {
+            int reach = (int) Math.ceil((100.0F - THRESHOLD) / slope);
+            for (int dz = -reach; dz <= reach; dz++) {
+                for (int dx = -reach; dx <= reach; dx++) {
+                    float height = 100.0F - (float) Math.sqrt((float) (dx * dx + dz * dz)) * slope;
+                    if (height <= THRESHOLD) continue;
+                    markCell(bits, cellX + dx, cellZ + dz);
+                }
+            }
+        }
+
+        /**
+         * Отметка чанков, в которые попадает ячейка.
+         * Координата ячейки - деление блока на 8 с отбрасыванием дробной части,
+         * поэтому ячейка 0 занимает блоки -7..7, а отрицательные ячейки сдвинуты на один блок
+         */
+        private void markCell(byte[] bits, int cellX, int cellZ) {
+            int fromX = cellX > 0 ? cellX * 8 : cellX * 8 - 7;
+            int toX = cellX >= 0 ? cellX * 8 + 7 : cellX * 8;
+            int fromZ = cellZ > 0 ? cellZ * 8 : cellZ * 8 - 7;
+            int toZ = cellZ >= 0 ? cellZ * 8 + 7 : cellZ * 8;
+            for (int chunkZ = fromZ >> 4; chunkZ <= toZ >> 4; chunkZ++) {
+                for (int chunkX = fromX >> 4; chunkX <= toX >> 4; chunkX++) {
+                    int cx = chunkX - originX;
+                    int cz = chunkZ - originZ;
+                    if (cx < 0 || cz < 0 || cx >= side || cz >= side) continue;
+                    int cell = cz * side + cx;
+                    bits[cell >> 3] |= (byte) (1 << (cell & 7));
+                }
+            }
+        }
+
+        /**
+         * Чтение карты из файла
+         * @return Биты карты или null, если файла нет или он создан для другого мира
+         */
+        private byte[] read(File file, int bytes) {
+            if (!file.exists()) return null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                if (buffer.capacity() != HEADER_SIZE + bytes
+                        || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || buffer.getLong(8) != seed || buffer.getInt(16) != originX
+                        || buffer.getInt(20) != originZ || buffer.getInt(24) != side
+                        || buffer.getInt(28) != THRESHOLD) {
+                    return null;
+                }
+                byte[] bits = new byte[bytes];
+                buffer.get(HEADER_SIZE, bits);
+                return bits;
+            } catch (IOException e) {
+                plugin.log(Level.WARNING, "Ошибка при чтении индекса островов " + file.getName(), e);
+                return null;
+            }
+        }
+
+        /**
+         * Сохранение карты в файл
+         */
+        private void write(File file, byte[] bits) {
+            if (!folder.exists() && !folder.mkdirs()) {
+                plugin.log(Level.WARNING, "Не удалось создать директорию для индексов островов Энда");
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bits.length);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(seed)
+                  .putInt(originX).putInt(originZ).putInt(side).putInt(THRESHOLD)
+                  .put(bits);
+            try {
+                Files.write(file.toPath(), buffer.array());
+            } catch (IOException e) {
+                plugin.log(Level.WARNING, "Ошибка при сохранении индекса островов " + file.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Двумерный симплекс-шум островов Энда.
+     * Повторяет ванильный: генератор java.util.Random с сидом мира,
+     * пропуск 17292 значений, затем смещения и перестановка таблицы.
+     */
+    private static class IslandNoise {
+        private static final int[][] GRADIENT = {
+            {1, 1, 0}, {-1, 1, 0}, {1, -1, 0}, {-1, -1, 0},
+            {1, 0, 1}, {-1, 0, 1}, {1, 0, -1}, {-1, 0, -1},
+            {0, 1, 1}, {0, -1, 1}, {0, 1, -1}, {0, -1, -1},
+            {1, 1, 0}, {0, -1, 1}, {-1, 1, 0}, {0, -1, -1}
+        };
+        private static final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
+        private static final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+
+        private final int[] permutation = new int[512];
+
+        IslandNoise(long seed) {
+            Random random = new Random(seed);
+            for (int i = 0; i < 17292; i++) {
+                random.nextInt();
+            }
+            // Смещения используются только трехмерным шумом, но их нужно прочитать для той же перестановки
+            random.nextDouble();
+            random.nextDouble();
+            random.nextDouble();
+
+            for (int i = 0; i < 256; i++) {
+                permutation[i] = i;
+            }
+            for (int i = 0; i < 256; i++) {
+                int j = random.nextInt(256 - i);
+                int swap = permutation[i];
+                permutation[i] = permutation[j + i];
+                permutation[j + i] = swap;
+            }
+        }
+
+        private int p(int index) {
+            return permutation[index & 0xFF];
+        }
+
+        double getValue(double x, double y) {
+            double skew = (x + y) * F2;
+            int i = (int) Math.floor(x + skew);
+            int j = (int) Math.floor(y + skew);
+            double unskew = (i + j) * G2;
+            double x0 = x - (i - unskew);
+            double y0 = y - (j - unskew);
+
+            int i1;
+            int j1;
+            if (x0 > y0) {
+                i1 = 1;
+                j1 = 0;
+            } else {
+                i1 = 0;
+                j1 = 1;
+            }
+
+            double x1 = x0 - i1 + G2;
+            double y1 = y0 - j1 + G2;
+            double x2 = x0 - 1.0 + 2.0 * G2;
+            double y2 = y0 - 1.0 + 2.0 * G2;
+            int ii = i & 0xFF;
+            int jj = j & 0xFF;
+            int g0 = p(ii + p(jj)) % 12;
+            int g1 = p(ii + i1 + p(jj + j1)) % 12;
+            int g2 = p(ii + 1 + p(jj + 1)) % 12;
+            return 70.0 * (corner(g0, x0, y0) + corner(g1, x1, y1) + corner(g2, x2, y2));
+        }
+
+        private static double corner(int gradient, double x, double y) {
+            double t = 0.5 - x * x - y * y;
+            if (t < 0.0) return 0.0;
+            t *= t;
+            return t * t * (GRADIENT[gradient][0] * x + GRADIENT[gradient][1] * y);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.World;
+
+/**
+ * Стратегия для Края: поверхность островов по карте высот.
+ * Колонны без блоков (пустота) и поверхность у самого дна мира отбрасываются.
+ */
+public class EndStrategy extends SurfaceStrategy {
+    // Минимальная высота поверхности острова над дном мира
+    private static final int VOID_MARGIN = 10;
+
+    @Override
+    public String getName() {
+        return "end";
+    }
+
+    @Override
+    public int getMinY(World world) {
+        return world.getMinHeight() + VOID_MARGIN;
+    }
+}
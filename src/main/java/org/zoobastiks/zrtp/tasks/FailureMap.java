@@ -0,0 +1,358 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Location;
+import org.zoobastiks.zrtp.Zrtp;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Карта неудачных областей для каждого мира.
+ * Квадрат максимального радиуса делится на ячейки чанков; для каждой ячейки считаются
+ * проверенные чанки без безопасного места и с ним (по 4 бита на счетчик).
+ * Ячейка пропускается при выборе кандидатов, когда неудач в ней достаточно много и они преобладают.
+ * Для больших радиусов ячейка объединяет несколько чанков, и один неудачный чанк
+ * не исключает всю ячейку, а один удачный не снимает отметку с ячейки, где неудачи преобладают.
+ * Счетчики хранятся в двух поколениях: при смене поколения старое забывается,
+ * поэтому изменения ландшафта со временем снова проверяются.
+ * Карта отображается в файл в папке плагина и сохраняется между перезапусками.
+ */
+public class FailureMap {
+    // Заголовок файла: магическое число, версия, начало сетки, сторона, размер ячейки, время смены поколения
+    private static final int MAGIC = 0x5A52464D; // "ZRFM"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+
+    // Ограничение на количество ячеек одного поколения (по байту на ячейку, 1 МБ на поколение)
+    private static final long MAX_CELLS = 1L << 20;
+
+    // Максимальное значение 4-битного счетчика
+    private static final int COUNTER_MAX = 15;
+
+    // Минимум неудачных чанков в укрупненной ячейке, чтобы ее пропускать
+    private static final int MIN_COARSE_FAILURES = 3;
+
+    private final Zrtp plugin;
+    private final File folder;
+    private final Map<String, Grid> grids = new ConcurrentHashMap<>();
+
+    // Время жизни поколения в миллисекундах (0 - карта выключена)
+    private volatile long decayMillis;
+
+    /**
+     * Конструктор карты неудачных областей
+     * @param plugin Экземпляр плагина
+     */
+    public FailureMap(Zrtp plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "failures");
+    }
+
+    /**
+     * Установка времени жизни поколения
+     * @param decayMinutes Время в минутах (0 - карта выключена)
+     */
+    public void setDecay(int decayMinutes) {
+        this.decayMillis = decayMinutes * 60_000L;
+    }
+
+    /**
+     * Проверка, включена ли карта
+     * @return true, если неудачные области запоминаются
+     */
+    public boolean isEnabled() {
+        return decayMillis > 0;
+    }
+
+    /**
+     * Проверка, отмечена ли область точки как неудачная
+     * @param worldName Имя мира
+     * @param worldConfig Конфигурация мира
+     * @param x X-координата
+     * @param z Z-координата
+     * @return true, если кандидата в этой области стоит пропустить
+     */
+    public boolean isFailed(String worldName, WorldCfg worldConfig, int x, int z) {
+        if (!isEnabled()) return false;
+        return getGrid(worldName, worldConfig).get(x >> 4, z >> 4);
+    }
+
+    /**
+     * Отметка чанка, в котором не нашлось безопасного места
+     * @param worldName Имя мира
+     * @param worldConfig Конфигурация мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     */
+    public void markFailed(String worldName, WorldCfg worldConfig, int chunkX, int chunkZ) {
+        if (!isEnabled()) return;
+        getGrid(worldName, worldConfig).set(chunkX, chunkZ, true);
+    }
+
+    /**
+     * Снятие отметки с чанка, в котором найдено безопасное место
+     * @param worldName Имя мира
+     * @param worldConfig Конфигурация мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     */
+    public void markSucceeded(String worldName, WorldCfg worldConfig, int chunkX, int chunkZ) {
+        if (!isEnabled()) return;
+        getGrid(worldName, worldConfig).set(chunkX, chunkZ, false);
+    }
+
+    /**
+     * Получение количества пропускаемых ячеек мира
+     * @param worldName Имя мира
+     * @return Количество ячеек по текущему и предыдущему поколениям
+     */
+    public int countFailed(String worldName) {
+        Grid grid = grids.get(worldName);
+        return grid != null ? grid.count() : 0;
+    }
+
+    /**
+     * Сброс отображенных файлов на диск и закрытие карт всех миров
+     */
+    public void close() {
+        for (Grid grid : grids.values()) {
+            grid.flush();
+        }
+        grids.clear();
+    }
+
+    /**
+     * Получение или открытие карты мира.
+     * Если радиус или центр мира изменились, карта создается заново.
+     */
+    private Grid getGrid(String worldName, WorldCfg worldConfig) {
+        Grid grid = grids.get(worldName);
+        if (grid != null && grid.matches(worldConfig)) {
+            return grid;
+        }
+        return grids.compute(worldName, (k, current) ->
+            current != null && current.matches(worldConfig) ? current : open(worldName, worldConfig));
+    }
+
+    /**
+     * Открытие файла карты мира
+     */
+    private Grid open(String worldName, WorldCfg worldConfig) {
+        Location center = worldConfig.getCenter();
+        int centerX = center != null ? center.getBlockX() : 0;
+        int centerZ = center != null ? center.getBlockZ() : 0;
+        int radius = worldConfig.getMaxRadius();
+        int originX = (centerX - radius) >> 4;
+        int originZ = (centerZ - radius) >> 4;
+        int sideChunks = ((centerX + radius) >> 4) - originX + 1;
+
+        // Для больших радиусов укрупняем ячейки, чтобы карта оставалась компактной
+        int cellShift = 0;
+        while ((long) ceilShift(sideChunks, cellShift) * ceilShift(sideChunks, cellShift) > MAX_CELLS) {
+            cellShift++;
+        }
+        int side = ceilShift(sideChunks, cellShift);
+        int bytes = side * side;
+
+        ByteBuffer buffer = map(new File(folder, worldName + ".bin"), HEADER_SIZE + 2 * bytes);
+        Grid grid = new Grid(buffer, originX, originZ, centerX, centerZ, radius, side, cellShift, bytes);
+        if (!grid.readHeader()) {
+            grid.reset();
+        }
+        return grid;
+    }
+
+    /**
+     * Отображение файла в память. При ошибке используется буфер в памяти без сохранения.
+     */
+    private ByteBuffer map(File file, int size) {
+        if (!folder.exists() && !folder.mkdirs()) {
+            plugin.log(Level.WARNING, "Не удалось создать директорию для карт неудачных областей");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Отображение остается действительным после закрытия канала
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            plugin.log(Level.WARNING, "Ошибка при открытии карты неудачных областей " + file.getName(), e);
+            return ByteBuffer.allocate(size);
+        }
+    }
+
+    private static int ceilShift(int value, int shift) {
+        return (value + (1 << shift) - 1) >> shift;
+    }
+
+    /**
+     * Карта одного мира: заголовок, текущее и предыдущее поколения счетчиков
+     * (байт на ячейку: старшие 4 бита - неудачи, младшие - успехи)
+     */
+    private class Grid {
+        private final ByteBuffer buffer;
+        private final int originX;
+        private final int originZ;
+        private final int centerX;
+        private final int centerZ;
+        private final int radius;
+        private final int side;
+        private final int cellShift;
+        private final int bytes;
+        private int current;
+        private long rotatedAt;
+
+        Grid(ByteBuffer buffer, int originX, int originZ, int centerX, int centerZ, int radius,
+             int side, int cellShift, int bytes) {
+            this.buffer = buffer;
+            this.originX = originX;
+            this.originZ = originZ;
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radius = radius;
+            this.side = side;
+            this.cellShift = cellShift;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Совпадает ли сетка с текущей конфигурацией мира
+         */
+        boolean matches(WorldCfg worldConfig) {
+            Location center = worldConfig.getCenter();
+            return radius == worldConfig.getMaxRadius()
+                && centerX == (center != null ? center.getBlockX() : 0)
+                && centerZ == (center != null ? center.getBlockZ() : 0);
+        }
+
+        /**
+         * Чтение заголовка файла
+         * @return true, если файл создан для такой же сетки
+         */
+        synchronized boolean readHeader() {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != originX || buffer.getInt(12) != originZ
+                    || buffer.getInt(16) != side || buffer.getShort(20) != cellShift) {
+                return false;
+            }
+            current = buffer.getShort(22);
+            rotatedAt = buffer.getLong(24);
+            return current == 0 || current == 1;
+        }
+
+        /**
+         * Очистка карты и запись нового заголовка
+         */
+        synchronized void reset() {
+            for (int i = HEADER_SIZE; i < HEADER_SIZE + 2 * bytes; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            current = 0;
+            rotatedAt = System.currentTimeMillis();
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, originX);
+            buffer.putInt(12, originZ);
+            buffer.putInt(16, side);
+            buffer.putShort(20, (short) cellShift);
+            writeGeneration();
+        }
+
+        synchronized boolean get(int chunkX, int chunkZ) {
+            int cell = cellIndex(chunkX, chunkZ);
+            if (cell < 0) return false;
+            rotateIfExpired();
+            return isFailed(cell);
+        }
+
+        synchronized void set(int chunkX, int chunkZ, boolean failed) {
+            int cell = cellIndex(chunkX, chunkZ);
+            if (cell < 0) return;
+            rotateIfExpired();
+
+            int index = HEADER_SIZE + current * bytes + cell;
+            int value = buffer.get(index) & 0xFF;
+            int failures = value >> 4;
+            int successes = value & 0x0F;
+            if (failed) {
+                failures++;
+            } else {
+                successes++;
+                if (cellShift == 0) {
+                    // Ячейка из одного чанка: найденное место доказывает, что чанк подходит
+                    failures = 0;
+                    buffer.put(HEADER_SIZE + (1 - current) * bytes + cell, (byte) 0);
+                }
+            }
+            // Переполненные счетчики уменьшаются вдвое, доля неудач при этом сохраняется
+            if (failures > COUNTER_MAX || successes > COUNTER_MAX) {
+                failures = (failures + 1) >> 1;
+                successes = (successes + 1) >> 1;
+            }
+            buffer.put(index, (byte) ((failures << 4) | successes));
+        }
+
+        synchronized int count() {
+            int total = 0;
+            for (int cell = 0; cell < bytes; cell++) {
+                if (isFailed(cell)) total++;
+            }
+            return total;
+        }
+
+        synchronized void flush() {
+            if (buffer instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        }
+
+        /**
+         * Смена поколения: предыдущее забывается, текущее становится предыдущим
+         */
+        private void rotateIfExpired() {
+            long now = System.currentTimeMillis();
+            if (now - rotatedAt < decayMillis) return;
+
+            current = 1 - current;
+            int offset = HEADER_SIZE + current * bytes;
+            for (int i = 0; i < bytes; i++) {
+                buffer.put(offset + i, (byte) 0);
+            }
+            rotatedAt = now;
+            writeGeneration();
+        }
+
+        private void writeGeneration() {
+            buffer.putShort(22, (short) current);
+            buffer.putLong(24, rotatedAt);
+        }
+
+        private int cellIndex(int chunkX, int chunkZ) {
+            int cx = (chunkX - originX) >> cellShift;
+            int cz = (chunkZ - originZ) >> cellShift;
+            if (chunkX < originX || chunkZ < originZ || cx >= side || cz >= side) {
+                return -1;
+            }
+            return cz * side + cx;
+        }
+
+        /**
+         * Пропускается ли ячейка: неудач по обоим поколениям не меньше порога
+         * и не меньше трех четвертей проверенных чанков ячейки
+         */
+        private boolean isFailed(int cell) {
+            int first = buffer.get(HEADER_SIZE + cell) & 0xFF;
+            int second = buffer.get(HEADER_SIZE + bytes + cell) & 0xFF;
+            int failures = (first >> 4) + (second >> 4);
+            int successes = (first & 0x0F) + (second & 0x0F);
+            int minFailures = cellShift == 0 ? 1 : MIN_COARSE_FAILURES;
+            return failures >= minFailures && failures * 4 >= (failures + successes) * 3;
+        }
+    }
+}
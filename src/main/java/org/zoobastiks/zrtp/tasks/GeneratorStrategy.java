@@ -0,0 +1,21 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.zoobastiks.zrtp.api.ColumnView;
+
+/**
+ * Стратегия для миров с собственным генератором: сначала поверхность по карте высот,
+ * а если там места нет (парящие острова, пещерные миры) - проверка всей колонны сверху вниз.
+ */
+public class GeneratorStrategy extends SurfaceStrategy {
+
+    @Override
+    public String getName() {
+        return "generator";
+    }
+
+    @Override
+    public int findSafeY(ColumnView column, int minY, int maxY) {
+        int y = super.findSafeY(column, minY, maxY);
+        return y != -1 ? y : column.scanDown(maxY, minY - 1);
+    }
+}
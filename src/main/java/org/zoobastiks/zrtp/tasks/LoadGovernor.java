@@ -0,0 +1,174 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.zoobastiks.zrtp.Zrtp;
+import org.zoobastiks.zrtp.config.SearchCfg;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ограничение загрузки чанков поиском по нагрузке сервера.
+ * Каждый тик поиску выделяется бюджет загрузок; запросы сверх бюджета ждут следующих тиков.
+ * При росте MSPT сначала приостанавливается пополнение пула, и только при перегрузке
+ * ограничиваются поиски игроков. Все методы вызываются в основном потоке.
+ */
+public class LoadGovernor {
+    // При перегрузке поиски игроков получают один чанк раз в столько тиков
+    private static final int THROTTLED_INTERVAL = 5;
+
+    private final Zrtp plugin;
+
+    // Разрешения, ожидающие бюджета: поиски игроков обслуживаются первыми
+    private final Deque<CompletableFuture<Void>> live = new ArrayDeque<>();
+    private final Deque<CompletableFuture<Void>> background = new ArrayDeque<>();
+
+    private BukkitTask task;
+    private boolean enabled = true;
+    private int chunksPerTick = 2;
+    private double refillPauseMspt = 40.0;
+    private double throttleMspt = 48.0;
+
+    // Номер тика, загрузки в текущем тике и бюджет поисков игроков на текущий тик
+    private long tick;
+    private int used;
+    private int budget;
+    private double mspt;
+
+    // Количество загрузок, ожидавших бюджета
+    private long deferred;
+
+    /**
+     * Конструктор ограничителя
+     * @param plugin Экземпляр плагина
+     */
+    public LoadGovernor(Zrtp plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Запуск ограничителя с настройками поиска
+     * @param searchConfig Настройки поиска
+     */
+    public void start(SearchCfg searchConfig) {
+        stop();
+        enabled = searchConfig.isGovernorEnabled();
+        chunksPerTick = searchConfig.getChunksPerTick();
+        refillPauseMspt = searchConfig.getRefillPauseMspt();
+        throttleMspt = searchConfig.getThrottleMspt();
+        budget = chunksPerTick;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Остановка ограничителя; ожидающие загрузки отменяются
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        CancellationException cancelled = new CancellationException();
+        live.forEach(permit -> permit.completeExceptionally(cancelled));
+        background.forEach(permit -> permit.completeExceptionally(cancelled));
+        live.clear();
+        background.clear();
+    }
+
+    /**
+     * Получение разрешения на загрузку чанка
+     * @param isBackground true для пополнения пула, false для поиска игрока
+     * @return CompletableFuture, завершаемый в основном потоке, когда загрузку можно выполнять
+     */
+    public CompletableFuture<Void> acquire(boolean isBackground) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        boolean allowed = isBackground
+            ? live.isEmpty() && background.isEmpty() && !isRefillPaused() && used < budget
+            : live.isEmpty() && used < budget;
+        if (allowed) {
+            used++;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        deferred++;
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        (isBackground ? background : live).addLast(permit);
+        return permit;
+    }
+
+    /**
+     * Проверка, приостановлено ли пополнение пула
+     * @return true, если сервер нагружен и пул пополнять не нужно
+     */
+    public boolean isRefillPaused() {
+        return enabled && mspt >= refillPauseMspt;
+    }
+
+    /**
+     * Получение среднего времени тика
+     * @return MSPT на момент последнего тика
+     */
+    public double getMspt() {
+        return mspt;
+    }
+
+    /**
+     * Получение бюджета загрузок на текущий тик
+     * @return Количество чанков (0, если в этом тике загрузки отложены)
+     */
+    public int getBudget() {
+        return enabled ? budget : -1;
+    }
+
+    /**
+     * Получение количества загрузок, ожидавших бюджета
+     * @return Количество отложенных загрузок с запуска
+     */
+    public long getDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Получение количества загрузок, ожидающих бюджета сейчас
+     * @return Количество загрузок
+     */
+    public int getWaiting() {
+        return live.size() + background.size();
+    }
+
+    /**
+     * Начало тика: пересчет бюджета и выдача ожидающих разрешений
+     */
+    private void tick() {
+        tick++;
+        used = 0;
+        mspt = Bukkit.getAverageTickTime();
+
+        if (mspt >= throttleMspt) {
+            // Перегрузка: поиски игроков продолжаются, но редко
+            budget = tick % THROTTLED_INTERVAL == 0 ? 1 : 0;
+        } else {
+            budget = chunksPerTick;
+        }
+
+        // Отмененные разрешения (поиск завершен или отменен) бюджет не расходуют
+        live.removeIf(CompletableFuture::isDone);
+        background.removeIf(CompletableFuture::isDone);
+        while (used < budget && !live.isEmpty()) {
+            if (live.pollFirst().complete(null)) {
+                used++;
+            }
+        }
+        while (used < budget && !background.isEmpty() && !isRefillPaused()) {
+            if (background.pollFirst().complete(null)) {
+                used++;
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Location;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Группа запросов локаций одного мира, обслуживаемая одним поиском.
+ * Найденные места раздаются запросам по очереди, каждое место выдается только один раз.
+ * Потокобезопасна.
+ */
+public class LocationBatch {
+    // Запросы, еще не получившие локацию
+    private final Deque<CompletableFuture<Location>> waiting;
+
+    // Уже выданные места (упакованные координаты блока)
+    private final Set<Long> delivered = new HashSet<>();
+
+    // Завершается, когда все запросы обслужены или поиск закончен
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    // Фоновый поиск (пополнение пула) уступает загрузку чанков поискам игроков
+    private final boolean background;
+
+    /**
+     * Создание группы запросов
+     * @param requests Запросы локаций
+     * @param background true для пополнения пула, false для запросов игроков
+     */
+    public LocationBatch(Collection<CompletableFuture<Location>> requests, boolean background) {
+        this.waiting = new ArrayDeque<>(requests);
+        this.background = background;
+
+        // Когда отменен последний ожидающий запрос, группа завершается сразу, а не при следующей проверке
+        for (CompletableFuture<Location> request : requests) {
+            request.whenComplete((location, ex) -> {
+                if (request.isCancelled()) {
+                    isDone();
+                }
+            });
+        }
+    }
+
+    /**
+     * Проверка, является ли поиск фоновым
+     * @return true для пополнения пула
+     */
+    public boolean isBackground() {
+        return background;
+    }
+
+    /**
+     * Выдача найденного места следующему запросу
+     * @param location Безопасная локация
+     * @return true, если место выдано; false, если запросов не осталось или место уже выдано
+     */
+    public synchronized boolean deliver(Location location) {
+        long key = pack(location);
+        if (delivered.contains(key)) {
+            return false;
+        }
+
+        CompletableFuture<Location> request;
+        while ((request = waiting.pollFirst()) != null) {
+            // Запрос мог быть отменен снаружи, тогда место получает следующий
+            if (request.complete(location)) {
+                delivered.add(key);
+                if (waiting.isEmpty()) {
+                    completion.complete(null);
+                }
+                return true;
+            }
+        }
+        completion.complete(null);
+        return false;
+    }
+
+    /**
+     * Проверка, обслужены ли все запросы
+     * @return true, если искать больше не нужно
+     */
+    public synchronized boolean isDone() {
+        // Отмененные снаружи запросы больше не ждут локацию
+        while (!waiting.isEmpty() && waiting.peekFirst().isDone()) {
+            waiting.pollFirst();
+        }
+        if (waiting.isEmpty()) {
+            completion.complete(null);
+        }
+        return completion.isDone();
+    }
+
+    /**
+     * Получение количества запросов, ожидающих локацию
+     * @return Количество запросов
+     */
+    public synchronized int remaining() {
+        return waiting.size();
+    }
+
+    /**
+     * Завершение поиска: оставшиеся запросы получают null
+     */
+    public synchronized void finish() {
+        for (CompletableFuture<Location> request : waiting) {
+            request.complete(null);
+        }
+        waiting.clear();
+        completion.complete(null);
+    }
+
+    /**
+     * Завершение поиска с ошибкой для всех оставшихся запросов
+     * @param ex Ошибка
+     */
+    public synchronized void fail(Throwable ex) {
+        for (CompletableFuture<Location> request : waiting) {
+            request.completeExceptionally(ex);
+        }
+        waiting.clear();
+        completion.complete(null);
+    }
+
+    /**
+     * Получение признака завершения группы
+     * @return CompletableFuture, завершаемый после обслуживания всех запросов
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    private static long pack(Location location) {
+        return ((long) (location.getBlockX() & 0x3FFFFFF) << 38)
+            | ((long) (location.getBlockZ() & 0x3FFFFFF) << 12)
+            | (location.getBlockY() & 0xFFF);
+    }
+}
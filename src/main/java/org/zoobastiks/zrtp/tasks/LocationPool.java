@@ -0,0 +1,539 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потокобезопасный пул заранее найденных безопасных локаций для каждого мира.
+ * Локации, загруженные из файла после перезапуска, хранятся отдельно как непроверенные:
+ * перед выдачей их нужно проверить заново, так как мир мог измениться.
+ * Для каждой локации хранится время проверки: локация старше ttl при выдаче переходит к непроверенным.
+ * Выданные локации запоминаются до телепортации, чтобы неиспользованное место вернулось в пул со своим временем проверки.
+ * Индекс по чанкам позволяет при изменении блоков сразу убрать локации измененного чанка.
+ */
+public class LocationPool {
+    // Сколько помнится время проверки выданной локации (10 минут)
+    private static final long ISSUED_TTL = 600_000L;
+
+    // Размер журнала выданных локаций мира, после которого удаляются устаревшие записи
+    private static final int ISSUED_CLEANUP_SIZE = 256;
+
+    // Пулы локаций по имени мира
+    private final Map<String, WorldPool> pools = new ConcurrentHashMap<>();
+
+    // Максимальное количество локаций в пуле одного мира
+    private volatile int capacity;
+
+    // Через сколько миллисекунд после проверки локация проверяется заново (0 - не проверяется)
+    private volatile long ttl;
+
+    /**
+     * Конструктор пула локаций
+     * @param capacity Максимальное количество локаций в пуле одного мира
+     */
+    public LocationPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Установка максимального размера пула
+     * @param capacity Максимальное количество локаций в пуле одного мира
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Получение максимального размера пула
+     * @return Максимальное количество локаций в пуле одного мира
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Установка срока, после которого локация проверяется заново перед выдачей
+     * @param ttlSeconds Срок в секундах (0 - не проверять по времени)
+     */
+    public void setTtl(int ttlSeconds) {
+        this.ttl = ttlSeconds * 1000L;
+    }
+
+    /**
+     * Взять локацию из пула мира
+     * @param worldName Имя мира
+     * @return Локация или null, если пул пуст (промах)
+     */
+    public Location poll(String worldName) {
+        return poll(worldName, true);
+    }
+
+    /**
+     * Взять локацию из пула мира. Локации старше ttl не выдаются, а переходят к непроверенным:
+     * их проверит по новому снимку чанка следующий поиск или пополнение пула.
+     * @param worldName Имя мира
+     * @param countStats Учитывать ли обращение в статистике попаданий и промахов
+     * @return Локация или null, если пул пуст
+     */
+    public Location poll(String worldName, boolean countStats) {
+        WorldPool pool = getPool(worldName);
+        long expired = ttl > 0 ? System.currentTimeMillis() - ttl : Long.MIN_VALUE;
+        Entry entry;
+        while ((entry = pool.locations.pollFirst()) != null) {
+            if (entry.verifiedAt < expired) {
+                // Место в пуле и в индексе чанков остается, меняется только очередь
+                pool.stored.offerLast(entry);
+                pool.expired.incrementAndGet();
+                continue;
+            }
+            pool.size.decrementAndGet();
+            unref(pool, entry.chunkKey);
+            if (countStats) pool.hits.incrementAndGet();
+            markIssued(entry.location, entry.verifiedAt);
+            return entry.location.clone();
+        }
+        // Непроверенные локации выдаются отдельно, промахом считается только полностью пустой пул
+        if (countStats && pool.stored.isEmpty()) pool.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Взять непроверенную локацию из пула мира. Попадание учитывается только после повторной проверки
+     * (см. {@link #recordHit} и {@link #recordFailedCheck})
+     * @param worldName Имя мира
+     * @return Локация, загруженная из файла или устаревшая, или null, если таких не осталось
+     */
+    public Location pollStored(String worldName) {
+        WorldPool pool = getPool(worldName);
+        Entry entry = pool.stored.pollFirst();
+        if (entry != null) {
+            pool.size.decrementAndGet();
+            unref(pool, entry.chunkKey);
+            return entry.location.clone();
+        }
+        return null;
+    }
+
+    /**
+     * Учет попадания: непроверенная локация прошла повторную проверку и выдана игроку
+     * @param worldName Имя мира
+     */
+    public void recordHit(String worldName) {
+        getPool(worldName).hits.incrementAndGet();
+    }
+
+    /**
+     * Учет непроверенной локации, не прошедшей повторную проверку и удаленной из пула
+     * @param worldName Имя мира
+     */
+    public void recordFailedCheck(String worldName) {
+        getPool(worldName).failedChecks.incrementAndGet();
+    }
+
+    /**
+     * Добавить только что проверенную локацию в пул ее мира
+     * @param location Безопасная локация
+     * @return true, если локация добавлена (в пуле было место)
+     */
+    public boolean offer(Location location) {
+        return offer(location, System.currentTimeMillis());
+    }
+
+    /**
+     * Добавить локацию в пул ее мира
+     * @param location Безопасная локация
+     * @param verifiedAt Время проверки локации в миллисекундах
+     * @return true, если локация добавлена (в пуле было место)
+     */
+    public boolean offer(Location location, long verifiedAt) {
+        if (location == null || location.getWorld() == null) {
+            return false;
+        }
+
+        WorldPool pool = getPool(location.getWorld().getName());
+        // Место снова в пуле (или отброшено) - выданным оно больше не считается
+        forget(pool, pack(location));
+        // Резервируем место до добавления, чтобы не превысить лимит при одновременной записи
+        if (pool.size.incrementAndGet() > capacity) {
+            pool.size.decrementAndGet();
+            return false;
+        }
+        Entry entry = new Entry(location.clone(), verifiedAt);
+        ref(pool, entry.chunkKey);
+        pool.locations.offerLast(entry);
+        return true;
+    }
+
+    /**
+     * Возврат выданной, но неиспользованной локации (игрок вышел, умер, сдвинулся
+     * или телепортация не удалась). Локация возвращается со своим временем проверки.
+     * @param location Выданная локация
+     * @return true, если локация добавлена (в пуле было место)
+     */
+    public boolean recycle(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return false;
+        }
+
+        WorldPool pool = getPool(location.getWorld().getName());
+        Long verifiedAt = forget(pool, pack(location));
+        // Время проверки забыто или чанк места изменился - без проверки место лучше не выдавать
+        if (verifiedAt == null) {
+            return false;
+        }
+        if (offer(location, verifiedAt)) {
+            pool.recycled.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Отметка, что выданная локация использована (игрок телепортирован) и в пул не вернется
+     * @param location Выданная локация
+     */
+    public void consume(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+        WorldPool pool = pools.get(location.getWorld().getName());
+        if (pool != null) {
+            forget(pool, pack(location));
+        }
+    }
+
+    /**
+     * Запоминание времени проверки выдаваемой локации, чтобы ее можно было вернуть в пул
+     * @param location Выдаваемая локация
+     * @param verifiedAt Время проверки в миллисекундах
+     */
+    public void markIssued(Location location, long verifiedAt) {
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+
+        WorldPool pool = getPool(location.getWorld().getName());
+        long key = pack(location);
+        if (pool.issued.put(key, verifiedAt) == null) {
+            pool.issuedChunks.compute(chunkKeyOf(key), (chunk, keys) -> {
+                Set<Long> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                result.add(key);
+                return result;
+            });
+        }
+        // Записи удаляются при телепортации и возврате; здесь убираются только потерянные
+        if (pool.issued.size() > ISSUED_CLEANUP_SIZE) {
+            long expired = System.currentTimeMillis() - ISSUED_TTL;
+            for (Map.Entry<Long, Long> issued : pool.issued.entrySet()) {
+                if (issued.getValue() < expired) {
+                    forget(pool, issued.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаление локаций чанка, в котором изменились блоки (вызывается из событий в основном потоке).
+     * Выполняется на каждое изменение блока, поэтому выданные места и места пула ищутся по индексам чанков:
+     * для чанка без мест это две проверки хеш-таблиц.
+     * @param worldName Имя мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @return Количество удаленных локаций пула
+     */
+    public int invalidate(String worldName, int chunkX, int chunkZ) {
+        WorldPool pool = pools.get(worldName);
+        long chunkKey = chunkKey(chunkX, chunkZ);
+        if (pool == null) {
+            return 0;
+        }
+
+        // Выданные места этого чанка больше не возвращаются в пул
+        Set<Long> issued = pool.issuedChunks.remove(chunkKey);
+        if (issued != null) {
+            issued.forEach(pool.issued::remove);
+        }
+
+        if (!pool.chunks.containsKey(chunkKey)) {
+            return 0;
+        }
+        int removed = evict(pool, pool.locations, chunkKey) + evict(pool, pool.stored, chunkKey);
+
+        pool.invalidated.addAndGet(removed);
+        return removed;
+    }
+
+    private int evict(WorldPool pool, Deque<Entry> deque, long chunkKey) {
+        int removed = 0;
+        for (Entry entry : deque) {
+            // Локацию могли одновременно выдать, тогда удалять уже нечего
+            if (entry.chunkKey == chunkKey && deque.removeFirstOccurrence(entry)) {
+                pool.size.decrementAndGet();
+                unref(pool, chunkKey);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Добавить непроверенную локацию, загруженную из файла
+     * @param location Локация
+     * @return true, если локация добавлена (в пуле было место)
+     */
+    public boolean offerStored(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return false;
+        }
+
+        WorldPool pool = getPool(location.getWorld().getName());
+        if (pool.size.incrementAndGet() > capacity) {
+            pool.size.decrementAndGet();
+            return false;
+        }
+        // Время проверки неизвестно - локация проверяется заново перед выдачей
+        Entry entry = new Entry(location.clone(), 0L);
+        ref(pool, entry.chunkKey);
+        pool.stored.offerLast(entry);
+        return true;
+    }
+
+    /**
+     * Получение копии всех локаций мира для сохранения
+     * @param worldName Имя мира
+     * @return Проверенные и непроверенные локации
+     */
+    public List<Location> snapshot(String worldName) {
+        List<Location> result = new ArrayList<>();
+        WorldPool pool = pools.get(worldName);
+        if (pool != null) {
+            pool.locations.forEach(entry -> result.add(entry.location.clone()));
+            pool.stored.forEach(entry -> result.add(entry.location.clone()));
+        }
+        return result;
+    }
+
+    /**
+     * Получение количества непроверенных локаций в пуле мира
+     * @param worldName Имя мира
+     * @return Количество локаций, загруженных из файла и еще не проверенных
+     */
+    public int storedSize(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.stored.size() : 0;
+    }
+
+    /**
+     * Проверка, заполнен ли пул мира
+     * @param worldName Имя мира
+     * @return true, если в пуле нет свободного места
+     */
+    public boolean isFull(String worldName) {
+        return size(worldName) >= capacity;
+    }
+
+    /**
+     * Получение количества локаций в пуле мира
+     * @param worldName Имя мира
+     * @return Количество локаций
+     */
+    public int size(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.size.get() : 0;
+    }
+
+    /**
+     * Получение количества попаданий в пул мира
+     * @param worldName Имя мира
+     * @return Количество выдач локаций из пула
+     */
+    public long getHits(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.hits.get() : 0L;
+    }
+
+    /**
+     * Получение количества промахов пула мира
+     * @param worldName Имя мира
+     * @return Количество обращений к пустому пулу
+     */
+    public long getMisses(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.misses.get() : 0L;
+    }
+
+    /**
+     * Получение количества неиспользованных локаций, возвращенных в пул мира
+     * @param worldName Имя мира
+     * @return Количество возвращенных локаций
+     */
+    public long getRecycled(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.recycled.get() : 0L;
+    }
+
+    /**
+     * Получение количества локаций, удаленных из пула мира из-за изменения блоков
+     * @param worldName Имя мира
+     * @return Количество удаленных локаций
+     */
+    public long getInvalidated(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.invalidated.get() : 0L;
+    }
+
+    /**
+     * Получение количества непроверенных локаций мира, не прошедших повторную проверку
+     * @param worldName Имя мира
+     * @return Количество удаленных локаций
+     */
+    public long getFailedChecks(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.failedChecks.get() : 0L;
+    }
+
+    /**
+     * Получение количества локаций мира, отправленных на повторную проверку по сроку
+     * @param worldName Имя мира
+     * @return Количество локаций
+     */
+    public long getExpired(String worldName) {
+        WorldPool pool = pools.get(worldName);
+        return pool != null ? pool.expired.get() : 0L;
+    }
+
+    /**
+     * Пометить, что для мира запущено пополнение пула
+     * @param worldName Имя мира
+     * @return true, если пополнение еще не выполнялось и флаг установлен
+     */
+    public boolean tryStartRefill(String worldName) {
+        return getPool(worldName).refilling.compareAndSet(false, true);
+    }
+
+    /**
+     * Снять флаг пополнения пула мира
+     * @param worldName Имя мира
+     */
+    public void finishRefill(String worldName) {
+        getPool(worldName).refilling.set(false);
+    }
+
+    /**
+     * Получение имен миров, для которых существуют пулы
+     * @return Множество имен миров
+     */
+    public Set<String> getWorldNames() {
+        return pools.keySet();
+    }
+
+    /**
+     * Очистка всех пулов (статистика сохраняется)
+     */
+    public void clear() {
+        for (WorldPool pool : pools.values()) {
+            pool.locations.clear();
+            pool.stored.clear();
+            pool.issued.clear();
+            pool.issuedChunks.clear();
+            pool.chunks.clear();
+            pool.size.set(0);
+            pool.refilling.set(false);
+        }
+    }
+
+    /**
+     * Получение или создание пула мира
+     * @param worldName Имя мира
+     * @return Пул мира
+     */
+    private WorldPool getPool(String worldName) {
+        return pools.computeIfAbsent(worldName, k -> new WorldPool());
+    }
+
+    // Удаление записи о выданной локации; возвращает время ее проверки или null
+    private static Long forget(WorldPool pool, long key) {
+        Long verifiedAt = pool.issued.remove(key);
+        if (verifiedAt != null) {
+            pool.issuedChunks.computeIfPresent(chunkKeyOf(key), (chunk, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        return verifiedAt;
+    }
+
+    // Учет локаций пула в индексе чанков
+    private static void ref(WorldPool pool, long chunkKey) {
+        pool.chunks.merge(chunkKey, 1, Integer::sum);
+    }
+
+    private static void unref(WorldPool pool, long chunkKey) {
+        pool.chunks.computeIfPresent(chunkKey, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // Упаковка координат блока: 26 бит X, 26 бит Z, 12 бит Y
+    private static long pack(Location location) {
+        return ((long) (location.getBlockX() & 0x3FFFFFF) << 38)
+            | ((long) (location.getBlockZ() & 0x3FFFFFF) << 12)
+            | (location.getBlockY() & 0xFFF);
+    }
+
+    // Ключ чанка по упакованным координатам блока
+    private static long chunkKeyOf(long packed) {
+        int x = (int) (packed >> 38);
+        int z = (int) (packed << 26 >> 38);
+        return chunkKey(x >> 4, z >> 4);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Локация пула со временем проверки и ключом ее чанка
+     */
+    private static class Entry {
+        private final Location location;
+        private final long verifiedAt;
+        private final long chunkKey;
+
+        Entry(Location location, long verifiedAt) {
+            this.location = location;
+            this.verifiedAt = verifiedAt;
+            this.chunkKey = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        }
+    }
+
+    /**
+     * Пул локаций одного мира со статистикой
+     */
+    private static class WorldPool {
+        private final Deque<Entry> locations = new ConcurrentLinkedDeque<>();
+        private final Deque<Entry> stored = new ConcurrentLinkedDeque<>();
+        // Время проверки выданных локаций по упакованным координатам
+        private final Map<Long, Long> issued = new ConcurrentHashMap<>();
+        // Упакованные координаты выданных локаций по ключу чанка
+        private final Map<Long, Set<Long>> issuedChunks = new ConcurrentHashMap<>();
+        // Количество локаций пула по ключу чанка
+        private final Map<Long, Integer> chunks = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong recycled = new AtomicLong();
+        private final AtomicLong invalidated = new AtomicLong();
+        private final AtomicLong expired = new AtomicLong();
+        private final AtomicLong failedChecks = new AtomicLong();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+    }
+}
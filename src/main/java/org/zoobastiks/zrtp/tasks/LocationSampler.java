@@ -0,0 +1,128 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор случайных точек в области телепортации мира.
+ * Сначала выбирается точка единичного квадрата (случайная или из последовательности R2),
+ * затем она переводится в форму области с сохранением равномерности по площади.
+ * Потокобезопасен: у каждого потока свой генератор случайных чисел.
+ */
+public class LocationSampler {
+    // Корень генераторов потоков; split() не потокобезопасен, поэтому вызывается под блокировкой
+    private static final SplittableRandom ROOT = new SplittableRandom();
+    private static final ThreadLocal<SplittableRandom> RANDOM = ThreadLocal.withInitial(() -> {
+        synchronized (ROOT) {
+            return ROOT.split();
+        }
+    });
+
+    // Шаги последовательности R2 (обратные степени пластического числа)
+    private static final double PLASTIC = 1.32471795724474602596;
+    private static final double R2_STEP_U = 1.0 / PLASTIC;
+    private static final double R2_STEP_V = 1.0 / (PLASTIC * PLASTIC);
+
+    private final WorldCfg config;
+    private final double centerX;
+    private final double centerZ;
+
+    // Номер следующей точки последовательности и ее случайный сдвиг
+    private final AtomicLong sequence = new AtomicLong();
+    private final double offsetU;
+    private final double offsetV;
+
+    /**
+     * Создание генератора точек для мира
+     * @param config Конфигурация мира
+     */
+    public LocationSampler(WorldCfg config) {
+        this.config = config;
+        Location center = config.getCenter();
+        this.centerX = center != null ? center.getX() : 0;
+        this.centerZ = center != null ? center.getZ() : 0;
+
+        // Случайный сдвиг, чтобы после перезапуска последовательность начиналась в другом месте
+        SplittableRandom random = RANDOM.get();
+        this.offsetU = random.nextDouble();
+        this.offsetV = random.nextDouble();
+    }
+
+    /**
+     * Генерация случайной точки в области телепортации
+     * @param world Мир
+     * @return Локация с Y=100 (будет скорректирована позже)
+     */
+    public Location sample(World world) {
+        double u;
+        double v;
+        if (config.getDistribution() == WorldCfg.Distribution.LOW_DISCREPANCY) {
+            long n = sequence.getAndIncrement();
+            u = fraction(offsetU + n * R2_STEP_U);
+            v = fraction(offsetV + n * R2_STEP_V);
+        } else {
+            SplittableRandom random = RANDOM.get();
+            u = random.nextDouble();
+            v = random.nextDouble();
+        }
+
+        double minRadius = Math.min(config.getMinRadius(), config.getMaxRadius());
+        double maxRadius = config.getMaxRadius();
+        return config.getShape() == WorldCfg.Shape.SQUARE
+            ? squareRing(world, u, v, minRadius, maxRadius)
+            : annulus(world, u, v, minRadius, maxRadius);
+    }
+
+    /**
+     * Точка кольца, равномерная по площади: радиус берется через квадратный корень,
+     * иначе точки скапливаются у внутренней границы
+     */
+    private Location annulus(World world, double u, double v, double minRadius, double maxRadius) {
+        double minSquared = minRadius * minRadius;
+        double radius = Math.sqrt(minSquared + u * (maxRadius * maxRadius - minSquared));
+        double angle = v * 2 * Math.PI;
+        return new Location(world, centerX + radius * Math.cos(angle), 100, centerZ + radius * Math.sin(angle));
+    }
+
+    /**
+     * Точка квадратной рамки, равномерная по площади.
+     * Рамка делится на верхнюю и нижнюю полосы во всю ширину и на левую и правую полосы между ними.
+     */
+    private Location squareRing(World world, double u, double v, double minRadius, double maxRadius) {
+        double thickness = maxRadius - minRadius;
+        double horizontalArea = 2 * maxRadius * thickness;
+        double verticalArea = 2 * minRadius * thickness;
+        if (horizontalArea <= 0) {
+            return new Location(world, centerX + maxRadius, 100, centerZ);
+        }
+        double t = u * 2 * (horizontalArea + verticalArea);
+
+        double dx;
+        double dz;
+        if (t < 2 * horizontalArea) {
+            // Верхняя или нижняя полоса
+            boolean top = t < horizontalArea;
+            double along = (top ? t : t - horizontalArea) / horizontalArea;
+            double across = minRadius + v * thickness;
+            dx = -maxRadius + along * 2 * maxRadius;
+            dz = top ? across : -across;
+        } else {
+            // Левая или правая полоса
+            t -= 2 * horizontalArea;
+            boolean right = t < verticalArea;
+            double along = (right ? t : t - verticalArea) / verticalArea;
+            double across = minRadius + v * thickness;
+            dx = right ? across : -across;
+            dz = -minRadius + along * 2 * minRadius;
+        }
+        return new Location(world, centerX + dx, 100, centerZ + dz);
+    }
+
+    private static double fraction(double value) {
+        return value - Math.floor(value);
+    }
+}
@@ -0,0 +1,142 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.zoobastiks.zrtp.config.SearchCfg;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Предрассчитанная таблица безопасности материалов, индексированная по Material.ordinal().
+ * Строится один раз при загрузке конфигурации, после чего каждая проверка - одно чтение из массива.
+ * Таблица неизменяема и безопасна для чтения из любого потока.
+ */
+public class MaterialTable {
+    // Флаги классификации материала
+    private static final byte FLOOR = 1;     // На блоке можно стоять
+    private static final byte PASSABLE = 2;  // Блок не мешает ногам и голове
+    private static final byte HAZARD = 4;    // Блок опасен рядом с игроком
+    private static final byte LIQUID = 8;    // Жидкость или блок, всегда заполненный водой
+    private static final byte TRUNK = 16;    // Ствол дерева
+    private static final byte BLOCKING = 32; // Блок учитывается картами высот MOTION_BLOCKING
+    private static final byte LEAVES = 64;   // Листва
+
+    // Встроенные опасные материалы
+    private static final Set<Material> BUILTIN_HAZARDS = EnumSet.of(
+        Material.LAVA, Material.FIRE, Material.SOUL_FIRE, Material.CAMPFIRE, Material.SOUL_CAMPFIRE,
+        Material.CACTUS, Material.MAGMA_BLOCK, Material.POWDER_SNOW, Material.POINTED_DRIPSTONE,
+        Material.SWEET_BERRY_BUSH, Material.WITHER_ROSE, Material.COBWEB, Material.TNT,
+        Material.NETHER_PORTAL, Material.END_PORTAL, Material.END_GATEWAY
+    );
+
+    // Неполные блоки, которые всегда находятся под водой
+    private static final Set<Material> UNDERWATER = EnumSet.of(
+        Material.WATER, Material.BUBBLE_COLUMN, Material.SEAGRASS, Material.TALL_SEAGRASS,
+        Material.KELP, Material.KELP_PLANT
+    );
+
+    private final byte[] flags;
+
+    /**
+     * Построение таблицы по правилам из конфигурации
+     * @param config Настройки поиска
+     */
+    public MaterialTable(SearchCfg config) {
+        Material[] materials = Material.values();
+        flags = new byte[materials.length];
+
+        for (Material material : materials) {
+            if (material.isLegacy() || !material.isBlock()) continue;
+
+            boolean hazard = BUILTIN_HAZARDS.contains(material) || config.getExtraUnsafeMaterials().contains(material);
+            boolean liquid = UNDERWATER.contains(material) || material == Material.LAVA;
+            boolean leaves = Tag.LEAVES.isTagged(material);
+            byte value = 0;
+
+            if (hazard) value |= HAZARD;
+            if (liquid) value |= LIQUID;
+            if (Tag.LOGS.isTagged(material)) value |= TRUNK;
+            if (leaves) value |= LEAVES;
+            // Как у сервера: твердые блоки и блоки с жидкостью
+            if (material.isSolid() || liquid) value |= BLOCKING;
+
+            // Стоять можно на твердых безопасных блоках, с учетом правил для падающих блоков и листвы
+            if (material.isSolid() && !hazard && !liquid
+                    && (config.isAllowFallingBlocks() || !material.hasGravity())
+                    && (config.isAllowLeaves() || !leaves)) {
+                value |= FLOOR;
+            }
+
+            // Ноги и голова помещаются в воздух и нетвердые безопасные блоки (трава, цветы, факелы)
+            if (material.isAir() || (!material.isSolid() && !hazard && !liquid)) {
+                value |= PASSABLE;
+            }
+
+            flags[material.ordinal()] = value;
+        }
+    }
+
+    /**
+     * Можно ли стоять на блоке
+     * @param material Материал блока
+     * @return true, если блок твердый и безопасный
+     */
+    public boolean isFloor(Material material) {
+        return (flags[material.ordinal()] & FLOOR) != 0;
+    }
+
+    /**
+     * Помещаются ли ноги или голова в блок
+     * @param material Материал блока
+     * @return true для воздуха и безопасных нетвердых блоков
+     */
+    public boolean isPassable(Material material) {
+        return (flags[material.ordinal()] & PASSABLE) != 0;
+    }
+
+    /**
+     * Опасен ли блок рядом с игроком
+     * @param material Материал блока
+     * @return true, если блок опасен
+     */
+    public boolean isHazard(Material material) {
+        return (flags[material.ordinal()] & HAZARD) != 0;
+    }
+
+    /**
+     * Является ли блок жидкостью
+     * @param material Материал блока
+     * @return true для воды, лавы и блоков, всегда находящихся под водой
+     */
+    public boolean isLiquid(Material material) {
+        return (flags[material.ordinal()] & LIQUID) != 0;
+    }
+
+    /**
+     * Является ли блок стволом дерева
+     * @param material Материал блока
+     * @return true для бревен
+     */
+    public boolean isTrunk(Material material) {
+        return (flags[material.ordinal()] & TRUNK) != 0;
+    }
+
+    /**
+     * Останавливает ли блок движение (учитывается картой высот MOTION_BLOCKING)
+     * @param material Материал блока
+     * @return true для твердых блоков и жидкостей
+     */
+    public boolean isMotionBlocking(Material material) {
+        return (flags[material.ordinal()] & BLOCKING) != 0;
+    }
+
+    /**
+     * Является ли блок листвой
+     * @param material Материал блока
+     * @return true для листвы
+     */
+    public boolean isLeaves(Material material) {
+        return (flags[material.ordinal()] & LEAVES) != 0;
+    }
+}
@@ -0,0 +1,35 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.World;
+import org.zoobastiks.zrtp.api.ColumnView;
+import org.zoobastiks.zrtp.api.LocationStrategy;
+
+/**
+ * Стратегия для Нижнего мира: карта высот указывает на потолок из бедрока,
+ * поэтому колонна проверяется сверху вниз между потолком и лавовым морем.
+ */
+public class NetherStrategy implements LocationStrategy {
+    // Толщина потолка из бедрока с запасом под голову
+    private static final int ROOF_MARGIN = 6;
+
+    @Override
+    public String getName() {
+        return "nether";
+    }
+
+    @Override
+    public int getMinY(World world) {
+        // Ниже уровня моря только лава
+        return Math.max(world.getMinHeight() + 1, world.getSeaLevel() + 1);
+    }
+
+    @Override
+    public int getMaxY(World world) {
+        return Math.min(world.getLogicalHeight(), world.getMaxHeight()) - ROOF_MARGIN;
+    }
+
+    @Override
+    public int findSafeY(ColumnView column, int minY, int maxY) {
+        return column.scanDown(maxY, minY - 1);
+    }
+}
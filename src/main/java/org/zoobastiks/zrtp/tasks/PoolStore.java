@@ -0,0 +1,171 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.Zrtp;
+import org.zoobastiks.zrtp.config.SearchCfg;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Сохранение пула локаций между перезапусками.
+ * Файл pool.bin: для каждого мира UUID, отпечаток настроек и упакованные координаты мест.
+ * При загрузке места мира принимаются, только если мир тот же (по UUID),
+ * а область и правила безопасности не менялись (по отпечатку).
+ */
+public class PoolStore {
+    private static final int MAGIC = 0x5A524C50; // "ZRLP"
+    private static final int VERSION = 1;
+
+    private final Zrtp plugin;
+    private final File file;
+
+    /**
+     * Конструктор хранилища пула
+     * @param plugin Экземпляр плагина
+     */
+    public PoolStore(Zrtp plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "pool.bin");
+    }
+
+    /**
+     * Запись локаций пула в файл. Сначала пишется временный файл, затем он заменяет старый,
+     * поэтому прерванная запись не портит сохраненный пул.
+     * @param worlds Локации по миру
+     * @param fingerprints Отпечатки настроек по имени мира
+     */
+    public synchronized void save(Map<World, List<Location>> worlds, Map<String, Integer> fingerprints) {
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            plugin.log(Level.WARNING, "Не удалось создать директорию для сохранения пула локаций");
+            return;
+        }
+
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(worlds.size());
+            for (Map.Entry<World, List<Location>> entry : worlds.entrySet()) {
+                World world = entry.getKey();
+                UUID uid = world.getUID();
+                out.writeUTF(world.getName());
+                out.writeLong(uid.getMostSignificantBits());
+                out.writeLong(uid.getLeastSignificantBits());
+                out.writeInt(fingerprints.getOrDefault(world.getName(), 0));
+                out.writeInt(entry.getValue().size());
+                for (Location location : entry.getValue()) {
+                    out.writeLong(pack(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+                }
+            }
+        } catch (IOException e) {
+            plugin.log(Level.WARNING, "Ошибка при сохранении пула локаций", e);
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.log(Level.WARNING, "Ошибка при замене файла пула локаций", e);
+        }
+    }
+
+    /**
+     * Чтение локаций пула из файла (вызывать в основном потоке)
+     * @param fingerprints Текущие отпечатки настроек по имени мира
+     * @return Локации по имени мира; миры с другим UUID или отпечатком пропускаются
+     */
+    public synchronized Map<String, List<Location>> load(Map<String, Integer> fingerprints) {
+        Map<String, List<Location>> result = new HashMap<>();
+        if (!file.exists()) return result;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return result;
+
+            int worlds = in.readInt();
+            for (int i = 0; i < worlds; i++) {
+                String worldName = in.readUTF();
+                UUID uid = new UUID(in.readLong(), in.readLong());
+                int fingerprint = in.readInt();
+                int count = in.readInt();
+
+                World world = Bukkit.getWorld(worldName);
+                boolean accepted = world != null && world.getUID().equals(uid)
+                    && Objects.equals(fingerprints.get(worldName), fingerprint);
+
+                List<Location> locations = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    long packed = in.readLong();
+                    if (accepted) {
+                        locations.add(new Location(world, unpackX(packed) + 0.5, unpackY(packed), unpackZ(packed) + 0.5));
+                    }
+                }
+                if (accepted) {
+                    result.put(worldName, locations);
+                }
+            }
+        } catch (IOException e) {
+            plugin.log(Level.WARNING, "Ошибка при чтении сохраненного пула локаций", e);
+        }
+        return result;
+    }
+
+    /**
+     * Отпечаток настроек, от которых зависит пригодность найденных мест:
+     * область телепортации, запрещенные биомы и правила безопасности блоков.
+     * Считается только по строкам и числам, чтобы совпадать между перезапусками.
+     * @param worldConfig Конфигурация мира
+     * @param searchConfig Настройки поиска
+     * @return Отпечаток
+     */
+    public static int fingerprint(WorldCfg worldConfig, SearchCfg searchConfig) {
+        Location center = worldConfig.getCenter();
+        TreeSet<String> unsafe = new TreeSet<>();
+        for (Material material : searchConfig.getExtraUnsafeMaterials()) {
+            unsafe.add(material.name());
+        }
+        return Objects.hash(
+            worldConfig.getMinRadius(), worldConfig.getMaxRadius(),
+            center != null ? center.getBlockX() : 0, center != null ? center.getBlockZ() : 0,
+            worldConfig.getShape().name(), new TreeSet<>(worldConfig.getForbiddenBiomes()).toString(),
+            unsafe.toString(), searchConfig.isAllowFallingBlocks(), searchConfig.isAllowLeaves());
+    }
+
+    // Упаковка координат: 26 бит X, 26 бит Z, 12 бит Y
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    private static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    private static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+}
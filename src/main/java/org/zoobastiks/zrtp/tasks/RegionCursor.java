@@ -0,0 +1,167 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Порядок кандидатов фонового пополнения пула с учетом файлов регионов.
+ * Регионы области телепортации (32x32 чанка, один файл r.X.Z.mca) обходятся по кривой Мортона (Z-order),
+ * начиная со случайного региона. В каждом регионе проверяется несколько случайных чанков области,
+ * пропорционально их количеству, затем курсор переходит к следующему региону.
+ * Подряд идущие пополнения читают один файл, и он остается в кэше страниц операционной системы.
+ * Потокобезопасен.
+ */
+public class RegionCursor {
+    // Ограничение на количество регионов; для больших радиусов используется обычный случайный порядок
+    private static final int MAX_REGIONS = 1 << 18;
+
+    // Сколько чанков проверяется за один вызов, прежде чем курсор сдается
+    private static final int MAX_STEPS = 4096;
+
+    /**
+     * Фильтр чанков-кандидатов
+     */
+    public interface ChunkFilter {
+        /**
+         * Проверка чанка
+         * @param chunkX X-координата чанка
+         * @param chunkZ Z-координата чанка
+         * @return true, если чанк стоит проверять
+         */
+        boolean accept(int chunkX, int chunkZ);
+    }
+
+    private final WorldCfg config;
+    private final int chunksPerRegion;
+
+    // Регионы, упорядоченные по коду Мортона: старшие 32 бита - X, младшие - Z; null, если регионов слишком много
+    private final long[] regions;
+
+    // Позиция следующего региона, текущий регион, его чанки области в случайном порядке и сколько из них уже выдано
+    private int regionPos;
+    private int regionX;
+    private int regionZ;
+    private int[] cells;
+    private int cellPos;
+    private int quota;
+    private int issued;
+
+    /**
+     * Создание курсора для области телепортации мира
+     * @param config Конфигурация мира
+     * @param chunksPerRegion Сколько чанков полного региона проверяется перед переходом к следующему
+     */
+    public RegionCursor(WorldCfg config, int chunksPerRegion) {
+        this.config = config;
+        this.chunksPerRegion = chunksPerRegion;
+
+        Location center = config.getCenter();
+        int centerX = center != null ? center.getBlockX() : 0;
+        int centerZ = center != null ? center.getBlockZ() : 0;
+        int radius = config.getMaxRadius();
+        int minRegionX = (centerX - radius) >> 9;
+        int minRegionZ = (centerZ - radius) >> 9;
+        int maxRegionX = (centerX + radius) >> 9;
+        int maxRegionZ = (centerZ + radius) >> 9;
+
+        long count = (long) (maxRegionX - minRegionX + 1) * (maxRegionZ - minRegionZ + 1);
+        if (count > MAX_REGIONS) {
+            this.regions = null;
+            return;
+        }
+
+        // Сортировка по коду Мортона относительно угла области: соседние по кривой регионы соседние и на карте
+        long[] keys = new long[(int) count];
+        int n = 0;
+        for (int z = minRegionZ; z <= maxRegionZ; z++) {
+            for (int x = minRegionX; x <= maxRegionX; x++) {
+                long morton = interleave(x - minRegionX) | (interleave(z - minRegionZ) << 1);
+                keys[n++] = (morton << 20) | ((long) (x - minRegionX) << 10) | (z - minRegionZ);
+            }
+        }
+        Arrays.sort(keys);
+
+        this.regions = new long[n];
+        for (int i = 0; i < n; i++) {
+            int x = minRegionX + (int) ((keys[i] >> 10) & 0x3FF);
+            int z = minRegionZ + (int) (keys[i] & 0x3FF);
+            regions[i] = ((long) x << 32) | (z & 0xFFFFFFFFL);
+        }
+        this.regionPos = ThreadLocalRandom.current().nextInt(n);
+    }
+
+    /**
+     * Следующий кандидат в порядке обхода регионов
+     * @param world Мир
+     * @param filter Фильтр чанков (известные неудачные области, политика генерации, острова Энда)
+     * @return Локация с Y=100 или null, если курсор не применим или подходящих чанков не нашлось
+     */
+    public synchronized Location next(World world, ChunkFilter filter) {
+        if (regions == null) return null;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int step = 0; step < MAX_STEPS; step++) {
+            if (cells == null || cellPos >= cells.length || issued >= quota) {
+                enterRegion(regions[regionPos], random);
+                regionPos = (regionPos + 1) % regions.length;
+                continue;
+            }
+
+            int cell = cells[cellPos++];
+            int chunkX = (regionX << 5) + (cell & 31);
+            int chunkZ = (regionZ << 5) + (cell >> 5);
+            if (!filter.accept(chunkX, chunkZ)) continue;
+
+            issued++;
+            return new Location(world, (chunkX << 4) + random.nextInt(16), 100, (chunkZ << 4) + random.nextInt(16));
+        }
+        return null;
+    }
+
+    /**
+     * Переход к региону: сбор его чанков внутри области в случайном порядке
+     */
+    private void enterRegion(long region, ThreadLocalRandom random) {
+        regionX = (int) (region >> 32);
+        regionZ = (int) region;
+
+        int[] found = new int[1024];
+        int count = 0;
+        for (int cell = 0; cell < 1024; cell++) {
+            double x = (((regionX << 5) + (cell & 31)) << 4) + 8;
+            double z = (((regionZ << 5) + (cell >> 5)) << 4) + 8;
+            if (config.isWithinRadius(x, z)) {
+                found[count++] = cell;
+            }
+        }
+
+        // Перемешивание Фишера-Йетса
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = found[i];
+            found[i] = found[j];
+            found[j] = swap;
+        }
+
+        cells = Arrays.copyOf(found, count);
+        cellPos = 0;
+        issued = 0;
+        // Регион на краю области получает меньше кандидатов, чтобы плотность точек по площади сохранялась
+        quota = count == 0 ? 0 : Math.max(1, (int) Math.round((double) chunksPerRegion * count / 1024));
+    }
+
+    /**
+     * Разнесение 10 младших бит числа по четным позициям
+     */
+    private static long interleave(int value) {
+        long result = 0;
+        for (int bit = 0; bit < 10; bit++) {
+            result |= (long) ((value >> bit) & 1) << (bit * 2);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,337 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.Zrtp;
+import org.zoobastiks.zrtp.config.WorldCfg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+
+/**
+ * Индекс уже сгенерированных чанков мира.
+ * Строится по заголовкам файлов регионов (region/r.X.Z.mca): в таблице смещений файла
+ * ненулевая запись означает, что чанк сохранен на диске. Затем индекс дополняется
+ * при загрузке чанков, так что новые чанки становятся доступными без перестроения.
+ * Индекс приблизительный: на диске сохраняются и недогенерированные чанки (например, соседи
+ * сгенерированной области), а статус по заголовку не определить. Такой чанк не загружается
+ * без генерации, считается промахом при загрузке и исключается из индекса.
+ * Используется для политик генерации prefer-generated и generated-only.
+ */
+public class RegionIndex {
+    // Размер таблицы смещений в начале файла региона (1024 записи по 4 байта)
+    private static final int HEADER_BYTES = 4096;
+
+    // Ограничение на размер сетки (2 МБ); для больших радиусов индекс не строится
+    private static final long MAX_CHUNKS = 1L << 24;
+
+    private final Zrtp plugin;
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор индекса регионов
+     * @param plugin Экземпляр плагина
+     */
+    public RegionIndex(Zrtp plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Подготовка индекса мира (вызывать в основном потоке).
+     * Индекс строится асинхронно и только для миров, где политика генерации не any.
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     */
+    public void prepare(World world, WorldCfg worldConfig) {
+        if (worldConfig.getGeneration() == WorldCfg.Generation.ANY) {
+            indexes.remove(world.getName());
+            return;
+        }
+
+        Index current = indexes.get(world.getName());
+        if (current != null && current.matches(worldConfig)) return;
+
+        Index index = new Index(worldConfig);
+        if ((long) index.side * index.side > MAX_CHUNKS) {
+            plugin.log(Level.WARNING, "Радиус мира " + world.getName() + " слишком велик для индекса сгенерированных чанков");
+            return;
+        }
+        indexes.put(world.getName(), index);
+
+        String worldName = world.getName();
+        File regionFolder = getRegionFolder(world);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long start = System.currentTimeMillis();
+            int files = index.build(regionFolder);
+            if (indexes.get(worldName) == index) {
+                plugin.log(Level.INFO, "Индекс сгенерированных чанков мира " + worldName + " построен за " +
+                           (System.currentTimeMillis() - start) + " мс: регионов " + files +
+                           ", чанков в области " + index.getGeneratedChunks());
+            }
+        });
+    }
+
+    /**
+     * Отметка загруженного чанка как сгенерированного (вызывается в основном потоке)
+     * @param world Мир
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     */
+    public void markGenerated(World world, int chunkX, int chunkZ) {
+        Index index = indexes.get(world.getName());
+        if (index != null) {
+            index.mark(chunkX, chunkZ);
+        }
+    }
+
+    /**
+     * Исключение чанка, который оказался недогенерированным при загрузке (вызывается в основном потоке)
+     * @param world Мир
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     */
+    public void markMissing(World world, int chunkX, int chunkZ) {
+        Index index = indexes.get(world.getName());
+        if (index != null) {
+            index.unmark(chunkX, chunkZ);
+        }
+    }
+
+    /**
+     * Выбор случайной точки в уже сгенерированном чанке области телепортации
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @return Локация с Y=100 или null, если индекс не готов или в области нет сгенерированных чанков
+     */
+    public Location sample(World world, WorldCfg worldConfig) {
+        Index index = indexes.get(world.getName());
+        if (index == null || !index.matches(worldConfig)) return null;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int cell = index.randomCell(random);
+        if (cell < 0) return null;
+
+        int x = ((index.originX + cell % index.side) << 4) + random.nextInt(16);
+        int z = ((index.originZ + cell / index.side) << 4) + random.nextInt(16);
+        return new Location(world, x, 100, z);
+    }
+
+    /**
+     * Проверка, что чанк заведомо не сгенерирован
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @return true, если индекс мира готов и чанк в нем не отмечен
+     */
+    public boolean isMissing(World world, WorldCfg worldConfig, int chunkX, int chunkZ) {
+        Index index = indexes.get(world.getName());
+        return index != null && index.matches(worldConfig) && index.isMissing(chunkX, chunkZ);
+    }
+
+    /**
+     * Получение количества сгенерированных чанков в области телепортации мира
+     * @param worldName Имя мира
+     * @return Количество чанков или -1, если индекса нет или он еще строится
+     */
+    public int getGeneratedChunks(String worldName) {
+        Index index = indexes.get(worldName);
+        return index != null ? index.getGeneratedChunks() : -1;
+    }
+
+    /**
+     * Сброс индексов всех миров
+     */
+    public void clear() {
+        indexes.clear();
+    }
+
+    /**
+     * Папка файлов регионов мира: у Нижнего мира и Энда она вложена в папку измерения
+     */
+    static File getRegionFolder(World world) {
+        File worldFolder = world.getWorldFolder();
+        switch (world.getEnvironment()) {
+            case NETHER:
+                File nether = new File(worldFolder, "DIM-1/region");
+                if (nether.isDirectory()) return nether;
+                break;
+            case THE_END:
+                File end = new File(worldFolder, "DIM1/region");
+                if (end.isDirectory()) return end;
+                break;
+            default:
+                break;
+        }
+        return new File(worldFolder, "region");
+    }
+
+    /**
+     * Индекс одного мира: битовая карта чанков квадрата максимального радиуса
+     * и список сгенерированных чанков внутри области телепортации
+     */
+    private static class Index {
+        private final WorldCfg config;
+        private final int centerX;
+        private final int centerZ;
+        private final int minRadius;
+        private final int maxRadius;
+        private final WorldCfg.Shape shape;
+        private final int originX;
+        private final int originZ;
+        private final int side;
+        private final long[] bits;
+
+        // Номера ячеек сгенерированных чанков в области (доступ под блокировкой this)
+        private int[] cells = new int[1024];
+        private int count;
+        private boolean ready;
+
+        Index(WorldCfg config) {
+            this.config = config;
+            Location center = config.getCenter();
+            this.centerX = center != null ? center.getBlockX() : 0;
+            this.centerZ = center != null ? center.getBlockZ() : 0;
+            this.minRadius = config.getMinRadius();
+            this.maxRadius = config.getMaxRadius();
+            this.shape = config.getShape();
+            this.originX = (centerX - maxRadius) >> 4;
+            this.originZ = (centerZ - maxRadius) >> 4;
+            this.side = ((centerX + maxRadius) >> 4) - originX + 1;
+            this.bits = new long[(int) (((long) side * side + 63) >> 6)];
+        }
+
+        /**
+         * Совпадает ли индекс с областью телепортации мира
+         */
+        boolean matches(WorldCfg config) {
+            Location center = config.getCenter();
+            return minRadius == config.getMinRadius() && maxRadius == config.getMaxRadius()
+                && shape == config.getShape()
+                && centerX == (center != null ? center.getBlockX() : 0)
+                && centerZ == (center != null ? center.getBlockZ() : 0);
+        }
+
+        synchronized int getGeneratedChunks() {
+            return ready ? count : -1;
+        }
+
+        synchronized boolean isMissing(int chunkX, int chunkZ) {
+            if (!ready) return false;
+            int cell = cellIndex(chunkX, chunkZ);
+            return cell < 0 || (bits[cell >> 6] & (1L << cell)) == 0;
+        }
+
+        synchronized int randomCell(ThreadLocalRandom random) {
+            return ready && count > 0 ? cells[random.nextInt(count)] : -1;
+        }
+
+        /**
+         * Чтение заголовков файлов регионов, пересекающих сетку
+         * @return Количество прочитанных файлов
+         */
+        int build(File regionFolder) {
+            long[] found = new long[bits.length];
+            int files = 0;
+            int fromRegionX = originX >> 5;
+            int fromRegionZ = originZ >> 5;
+            int toRegionX = (originX + side - 1) >> 5;
+            int toRegionZ = (originZ + side - 1) >> 5;
+
+            byte[] header = new byte[HEADER_BYTES];
+            for (int regionZ = fromRegionZ; regionZ <= toRegionZ; regionZ++) {
+                for (int regionX = fromRegionX; regionX <= toRegionX; regionX++) {
+                    File file = new File(regionFolder, "r." + regionX + "." + regionZ + ".mca");
+                    if (!file.isFile() || file.length() < HEADER_BYTES) continue;
+                    try (RandomAccessFile region = new RandomAccessFile(file, "r")) {
+                        region.readFully(header);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    files++;
+
+                    for (int i = 0; i < 1024; i++) {
+                        int offset = i << 2;
+                        // Запись: 3 байта номера сектора и 1 байт количества секторов; нули - чанка нет
+                        if ((header[offset] | header[offset + 1] | header[offset + 2] | header[offset + 3]) == 0) continue;
+                        int cell = cellIndex((regionX << 5) + (i & 31), (regionZ << 5) + (i >> 5));
+                        if (cell >= 0) {
+                            found[cell >> 6] |= 1L << cell;
+                        }
+                    }
+                }
+            }
+
+            synchronized (this) {
+                // Чанки, отмеченные событиями во время построения, сохраняются
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] |= found[i];
+                }
+                for (int cell = 0; cell < side * side; cell++) {
+                    if ((bits[cell >> 6] & (1L << cell)) != 0) {
+                        addIfInArea(cell);
+                    }
+                }
+                ready = true;
+            }
+            return files;
+        }
+
+        /**
+         * Отметка чанка как сгенерированного
+         */
+        synchronized void mark(int chunkX, int chunkZ) {
+            int cell = cellIndex(chunkX, chunkZ);
+            if (cell < 0 || (bits[cell >> 6] & (1L << cell)) != 0) return;
+            bits[cell >> 6] |= 1L << cell;
+            if (ready) {
+                addIfInArea(cell);
+            }
+        }
+
+        /**
+         * Снятие отметки с чанка и удаление его из списка
+         */
+        synchronized void unmark(int chunkX, int chunkZ) {
+            int cell = cellIndex(chunkX, chunkZ);
+            if (cell < 0 || (bits[cell >> 6] & (1L << cell)) == 0) return;
+            bits[cell >> 6] &= ~(1L << cell);
+            if (!ready) return;
+            for (int i = 0; i < count; i++) {
+                if (cells[i] == cell) {
+                    cells[i] = cells[--count];
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Добавление чанка в список, если его центр внутри области телепортации
+         */
+        private void addIfInArea(int cell) {
+            double x = ((originX + cell % side) << 4) + 8;
+            double z = ((originZ + cell / side) << 4) + 8;
+            if (!config.isWithinRadius(x, z)) return;
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+            }
+            cells[count++] = cell;
+        }
+
+        private int cellIndex(int chunkX, int chunkZ) {
+            int cx = chunkX - originX;
+            int cz = chunkZ - originZ;
+            if (cx < 0 || cz < 0 || cx >= side || cz >= side) {
+                return -1;
+            }
+            return cz * side + cx;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.zoobastiks.zrtp.tasks;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Чтение файлов регионов мира (r.X.Z.mca) напрямую с диска, без обращения к серверу.
+ * Файл открывается только на время чтения: из таблицы смещений в заголовке берется запись чанка,
+ * затем читаются только секторы этого чанка. Файлы не отображаются в память, поэтому сервер
+ * может свободно дописывать, переименовывать и удалять их (в Windows отображение блокирует файл).
+ * Данные чанка при необходимости распаковываются, и из NBT берутся только
+ * статус генерации, карты высот и палитры биомов. Сжатие LZ4 (region-file-compression: lz4)
+ * и данные во внешних файлах .mcc не поддерживаются: такие чанки считаются чанками без данных.
+ * Сервер может записывать файл одновременно с чтением, поэтому любые ошибки разбора
+ * означают "нет данных", а не ошибку поиска. Потокобезопасен.
+ */
+public class RegionReader {
+    private static final int SECTOR_BYTES = 4096;
+    private static final int HEADER_BYTES = 8192;
+
+    // Типы тегов NBT
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_SHORT = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+
+    /**
+     * Чтение сведений о чанке из файла региона
+     * @param regionFolder Папка файлов регионов мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @param withData Распаковывать ли данные чанка (статус, карты высот, биомы)
+     * @return Сведения о чанке или null, если чанка нет на диске или файл не читается
+     */
+    public ChunkInfo read(File regionFolder, int chunkX, int chunkZ, boolean withData) {
+        File file = new File(regionFolder, "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ".mca");
+        if (file.length() < HEADER_BYTES) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int index = ((chunkZ & 31) << 5) | (chunkX & 31);
+            ByteBuffer entry = ByteBuffer.allocate(4);
+            if (!readFully(channel, entry, (long) index << 2)) return null;
+            int location = entry.getInt(0);
+            if (location == 0) return null;
+
+            ChunkInfo info = new ChunkInfo();
+            if (withData) {
+                try {
+                    readData(channel, location, info);
+                } catch (IOException | RuntimeException e) {
+                    // Чанк записывается сервером или поврежден - остаются только данные заголовка
+                    info.status = null;
+                }
+            }
+            return info;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Распаковка данных чанка и разбор нужных тегов
+     */
+    private void readData(FileChannel channel, int location, ChunkInfo info) throws IOException {
+        long offset = (long) (location >>> 8) * SECTOR_BYTES;
+        int sectors = location & 0xFF;
+        if (sectors == 0) return;
+
+        ByteBuffer header = ByteBuffer.allocate(5);
+        if (!readFully(channel, header, offset)) return;
+        int length = header.getInt(0);
+        int compression = header.get(4);
+        if (length <= 1 || length + 4L > (long) sectors * SECTOR_BYTES) return;
+
+        byte[] data = new byte[length - 1];
+        if (!readFully(channel, ByteBuffer.wrap(data), offset + 5)) return;
+
+        InputStream raw = new ByteArrayInputStream(data);
+        InputStream in;
+        switch (compression) {
+            case 1: in = new GZIPInputStream(raw); break;
+            case 2: in = new InflaterInputStream(raw); break;
+            case 3: in = raw; break;
+            // LZ4 (тип 4) и данные во внешних файлах .mcc не читаются
+            default: return;
+        }
+
+        try (DataInputStream nbt = new DataInputStream(in)) {
+            if (nbt.readUnsignedByte() != TAG_COMPOUND) return;
+            nbt.skipBytes(nbt.readUnsignedShort());
+            readRoot(nbt, info);
+        }
+    }
+
+    /**
+     * Позиционное чтение до заполнения буфера
+     * @return false, если файл закончился раньше
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Разбор корневого тега чанка
+     */
+    private void readRoot(DataInputStream in, ChunkInfo info) throws IOException {
+        int type;
+        while ((type = in.readUnsignedByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (type == TAG_STRING && name.equals("Status")) {
+                info.status = in.readUTF();
+            } else if (type == TAG_INT && name.equals("yPos")) {
+                info.minSection = in.readInt();
+            } else if (type == TAG_COMPOUND && name.equals("Heightmaps")) {
+                readHeightmaps(in, info);
+            } else if (type == TAG_LIST && name.equals("sections")) {
+                readSections(in, info);
+            } else {
+                skip(in, type);
+            }
+        }
+    }
+
+    private void readHeightmaps(DataInputStream in, ChunkInfo info) throws IOException {
+        int type;
+        while ((type = in.readUnsignedByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (type == TAG_LONG_ARRAY && name.equals("MOTION_BLOCKING")) {
+                info.motionBlocking = readLongArray(in);
+            } else if (type == TAG_LONG_ARRAY && name.equals("OCEAN_FLOOR")) {
+                info.oceanFloor = readLongArray(in);
+            } else {
+                skip(in, type);
+            }
+        }
+    }
+
+    private void readSections(DataInputStream in, ChunkInfo info) throws IOException {
+        int elementType = in.readUnsignedByte();
+        int count = in.readInt();
+        if (elementType != TAG_COMPOUND) {
+            for (int i = 0; i < count; i++) {
+                skip(in, elementType);
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            int type;
+            while ((type = in.readUnsignedByte()) != TAG_END) {
+                String name = in.readUTF();
+                if (type == TAG_COMPOUND && name.equals("biomes")) {
+                    readBiomes(in, info);
+                } else {
+                    skip(in, type);
+                }
+            }
+        }
+    }
+
+    private void readBiomes(DataInputStream in, ChunkInfo info) throws IOException {
+        int type;
+        while ((type = in.readUnsignedByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (type == TAG_LIST && name.equals("palette")) {
+                int elementType = in.readUnsignedByte();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    if (elementType == TAG_STRING) {
+                        info.biomes.add(in.readUTF());
+                    } else {
+                        skip(in, elementType);
+                    }
+                }
+            } else {
+                skip(in, type);
+            }
+        }
+    }
+
+    private static long[] readLongArray(DataInputStream in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    /**
+     * Пропуск значения тега
+     */
+    private static void skip(DataInputStream in, int type) throws IOException {
+        switch (type) {
+            case TAG_BYTE: in.skipNBytes(1); break;
+            case TAG_SHORT: in.skipNBytes(2); break;
+            case TAG_INT: case TAG_FLOAT: in.skipNBytes(4); break;
+            case TAG_LONG: case TAG_DOUBLE: in.skipNBytes(8); break;
+            case TAG_BYTE_ARRAY: in.skipNBytes(in.readInt()); break;
+            case TAG_STRING: in.skipNBytes(in.readUnsignedShort()); break;
+            case TAG_INT_ARRAY: in.skipNBytes(4L * in.readInt()); break;
+            case TAG_LONG_ARRAY: in.skipNBytes(8L * in.readInt()); break;
+            case TAG_LIST: {
+                int elementType = in.readUnsignedByte();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    skip(in, elementType);
+                }
+                break;
+            }
+            case TAG_COMPOUND: {
+                int inner;
+                while ((inner = in.readUnsignedByte()) != TAG_END) {
+                    in.skipNBytes(in.readUnsignedShort());
+                    skip(in, inner);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Неизвестный тип тега NBT: " + type);
+        }
+    }
+
+    /**
+     * Сведения о чанке из файла региона
+     */
+    public static class ChunkInfo {
+        private String status;
+        private int minSection;
+        private long[] motionBlocking;
+        private long[] oceanFloor;
+        private final Set<String> biomes = new HashSet<>();
+
+        private ChunkInfo() {
+        }
+
+        /**
+         * Проверка, полностью ли сгенерирован чанк
+         * @return true, если статус чанка full
+         */
+        public boolean isFull() {
+            return "minecraft:full".equals(status) || "full".equals(status);
+        }
+
+        /**
+         * Получение биомов чанка
+         * @return Ключи биомов из палитр всех секций (пусто, если данные не читались)
+         */
+        public Set<String> getBiomes() {
+            return biomes;
+        }
+
+        /**
+         * Проверка наличия сохраненных карт высот
+         * @return true, если можно определять высоту поверхности
+         */
+        public boolean hasHeightmaps() {
+            return motionBlocking != null && oceanFloor != null;
+        }
+
+        /**
+         * Проверка, покрыта ли колонна жидкостью: вода и лава учитываются в MOTION_BLOCKING,
+         * но не в OCEAN_FLOOR, поэтому над дном жидкость
+         * @param x Локальная X-координата (0-15)
+         * @param z Локальная Z-координата (0-15)
+         * @param worldHeight Высота мира
+         * @return true, если поверхность колонны - жидкость
+         */
+        public boolean isLiquidSurface(int x, int z, int worldHeight) {
+            return hasHeightmaps() && decode(motionBlocking, x, z, worldHeight) > decode(oceanFloor, x, z, worldHeight);
+        }
+
+        /**
+         * Распаковка значения карты высот: значения по ceil(log2(height + 1)) бит, без переноса между long
+         */
+        private int decode(long[] heightmap, int x, int z, int worldHeight) {
+            if (heightmap == null) return Integer.MIN_VALUE;
+            int bits = 32 - Integer.numberOfLeadingZeros(worldHeight);
+            int perLong = 64 / bits;
+            int index = (z << 4) | x;
+            int slot = index / perLong;
+            if (slot >= heightmap.length) return Integer.MIN_VALUE;
+            long value = (heightmap[slot] >>> ((index % perLong) * bits)) & ((1L << bits) - 1);
+            return (int) value + (minSection << 4);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.zoobastiks.zrtp.Zrtp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Объединение одновременных запросов локаций.
+ * Запросы одного мира собираются в течение короткого окна (в тиках),
+ * после чего для всей группы запускается один общий поиск.
+ */
+public class RequestCoalescer {
+    private final Zrtp plugin;
+
+    // Обработчик группы запросов мира (вызывается в основном потоке)
+    private final BiConsumer<World, List<CompletableFuture<Location>>> batchHandler;
+
+    // Собираемые группы по имени мира (доступ под блокировкой this)
+    private final Map<String, List<CompletableFuture<Location>>> pending = new HashMap<>();
+
+    // Длина окна сбора запросов в тиках
+    private volatile int windowTicks;
+
+    /**
+     * Конструктор объединителя запросов
+     * @param plugin Экземпляр плагина
+     * @param batchHandler Обработчик группы запросов мира
+     */
+    public RequestCoalescer(Zrtp plugin, BiConsumer<World, List<CompletableFuture<Location>>> batchHandler) {
+        this.plugin = plugin;
+        this.batchHandler = batchHandler;
+    }
+
+    /**
+     * Установка длины окна сбора запросов
+     * @param windowTicks Длина окна в тиках (0 - каждый запрос обрабатывается сразу)
+     */
+    public void setWindow(int windowTicks) {
+        this.windowTicks = windowTicks;
+    }
+
+    /**
+     * Добавление запроса локации в группу мира
+     * @param world Мир
+     * @return CompletableFuture с локацией или null, если место не найдено
+     */
+    public CompletableFuture<Location> request(World world) {
+        CompletableFuture<Location> request = new CompletableFuture<>();
+        int window = windowTicks;
+
+        // Окно выключено - группа из одного запроса
+        if (window <= 0) {
+            List<CompletableFuture<Location>> single = new ArrayList<>(1);
+            single.add(request);
+            if (Bukkit.isPrimaryThread()) {
+                batchHandler.accept(world, single);
+            } else {
+                Bukkit.getScheduler().runTask(plugin, () -> batchHandler.accept(world, single));
+            }
+            return request;
+        }
+
+        boolean first;
+        synchronized (this) {
+            List<CompletableFuture<Location>> group = pending.computeIfAbsent(world.getName(), k -> new ArrayList<>());
+            first = group.isEmpty();
+            group.add(request);
+        }
+
+        // Первый запрос группы открывает окно, по его окончании группа отправляется на поиск
+        if (first) {
+            Bukkit.getScheduler().runTaskLater(plugin, () -> flush(world), window);
+        }
+        return request;
+    }
+
+    /**
+     * Отправка собранной группы мира на поиск
+     * @param world Мир
+     */
+    private void flush(World world) {
+        List<CompletableFuture<Location>> group;
+        synchronized (this) {
+            group = pending.remove(world.getName());
+        }
+        if (group != null && !group.isEmpty()) {
+            batchHandler.accept(world, group);
+        }
+    }
+
+    /**
+     * Завершение всех собираемых запросов без результата
+     */
+    public void clear() {
+        List<List<CompletableFuture<Location>>> groups;
+        synchronized (this) {
+            groups = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        for (List<CompletableFuture<Location>> group : groups) {
+            group.forEach(request -> request.complete(null));
+        }
+    }
+}
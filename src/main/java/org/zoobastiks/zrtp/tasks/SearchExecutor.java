@@ -0,0 +1,210 @@
+package org.zoobastiks.zrtp.tasks;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Собственный исполнитель поиска локаций с ограничением нагрузки.
+ * Проверки снимков чанков выполняются на фиксированном наборе потоков,
+ * а одновременно выполняется не больше maxInFlight поисков. Остальные поиски ждут
+ * в ограниченной очереди, а при ее переполнении отклоняются сразу.
+ */
+public class SearchExecutor implements Executor {
+    private final ThreadPoolExecutor workers;
+    private final int maxInFlight;
+    private final int queueSize;
+
+    // Поиски, ожидающие свободного места (доступ под блокировкой this)
+    private final Deque<Pending> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    // Счетчики для статистики
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Создание исполнителя поиска
+     * @param threads Количество потоков для проверки снимков
+     * @param maxInFlight Максимальное количество одновременных поисков
+     * @param queueSize Максимальное количество поисков в очереди
+     */
+    public SearchExecutor(int threads, int maxInFlight, int queueSize) {
+        this.maxInFlight = maxInFlight;
+        this.queueSize = queueSize;
+
+        AtomicInteger counter = new AtomicInteger();
+        // Количество задач проверки ограничено числом поисков, поэтому очередь потоков
+        // переполняется только при сбое. Задача тогда отклоняется, а не выполняется в вызывающем потоке:
+        // этапы поиска продолжаются из колбэков основного потока, и проверка чанка заняла бы тик сервера.
+        // Отклоненный этап завершает цепочку поиска с RejectedExecutionException
+        this.workers = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(64, maxInFlight * 64)),
+            task -> {
+                Thread thread = new Thread(task, "Zrtp-Search-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            (task, pool) -> {
+                throw new RejectedExecutionException(pool.isShutdown() 
+                    ? "Исполнитель поиска остановлен" : "Очередь проверки чанков заполнена");
+            });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Выполнение задачи проверки на потоках поиска
+     * @param task Задача
+     */
+    @Override
+    public void execute(Runnable task) {
+        workers.execute(task);
+    }
+
+    /**
+     * Запуск поиска с учетом ограничения одновременных поисков
+     * @param search Поиск, возвращающий результат
+     * @param canWait Может ли поиск ждать в очереди (фоновые поиски не ждут)
+     * @return CompletableFuture с результатом поиска;
+     *         завершается с RejectedExecutionException, если места нет
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> search, boolean canWait) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            try {
+                workers.execute(() -> {
+                    CompletableFuture<T> running;
+                    try {
+                        running = search.get();
+                    } catch (RuntimeException e) {
+                        running = CompletableFuture.failedFuture(e);
+                    }
+                    running.whenComplete((value, ex) -> {
+                        release();
+                        if (ex != null) {
+                            result.completeExceptionally(ex);
+                        } else {
+                            result.complete(value);
+                        }
+                    });
+                });
+            } catch (RejectedExecutionException e) {
+                release();
+                result.completeExceptionally(e);
+            }
+        };
+
+        boolean startNow;
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+                startNow = true;
+            } else if (canWait && waiting.size() < queueSize) {
+                waiting.addLast(new Pending(start, result));
+                startNow = false;
+            } else {
+                rejected.incrementAndGet();
+                result.completeExceptionally(new RejectedExecutionException("Очередь поиска локаций заполнена"));
+                return result;
+            }
+        }
+
+        if (startNow) {
+            start.run();
+        }
+        return result;
+    }
+
+    /**
+     * Освобождение места завершенным поиском и запуск следующего из очереди
+     */
+    private void release() {
+        completed.incrementAndGet();
+        Pending next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        if (next != null) {
+            next.start.run();
+        }
+    }
+
+    /**
+     * Получение количества выполняющихся поисков
+     * @return Количество поисков
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Получение количества поисков в очереди
+     * @return Длина очереди
+     */
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    /**
+     * Получение максимального количества одновременных поисков
+     * @return Количество поисков
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Получение количества отклоненных поисков
+     * @return Количество поисков
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Получение количества завершенных поисков
+     * @return Количество поисков
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Остановка исполнителя. Ожидающие поиски отбрасываются, текущие проверки дорабатывают.
+     */
+    public void shutdown() {
+        Pending[] dropped;
+        synchronized (this) {
+            dropped = waiting.toArray(new Pending[0]);
+            waiting.clear();
+        }
+        workers.shutdown();
+        for (Pending pending : dropped) {
+            pending.result.completeExceptionally(new RejectedExecutionException("Исполнитель поиска остановлен"));
+        }
+    }
+
+    /**
+     * Поиск, ожидающий в очереди
+     */
+    private static class Pending {
+        private final Runnable start;
+        private final CompletableFuture<?> result;
+
+        Pending(Runnable start, CompletableFuture<?> result) {
+            this.start = start;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.Location;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Отменяемый поиск места назначения одной телепортации.
+ * Поиск проходит несколько этапов (проверка сохраненного места, общий поиск мира),
+ * и отмена результата отменяет текущий этап: оставшиеся кандидаты не запускаются,
+ * а загрузки чанков, ожидающие бюджета тика, снимаются из очереди.
+ * Потокобезопасен.
+ */
+public class SearchHandle {
+    private final CompletableFuture<Location> result = new CompletableFuture<>();
+
+    // Текущий этап поиска (доступ под блокировкой this)
+    private CompletableFuture<Location> stage;
+
+    /**
+     * Создание поиска
+     */
+    public SearchHandle() {
+        // Отмена результата снаружи (в том числе через getResult().cancel) отменяет текущий этап
+        result.whenComplete((location, ex) -> {
+            if (result.isCancelled()) {
+                cancelStage();
+            }
+        });
+    }
+
+    /**
+     * Получение результата поиска
+     * @return CompletableFuture с локацией или null, если место не найдено
+     */
+    public CompletableFuture<Location> getResult() {
+        return result;
+    }
+
+    /**
+     * Отмена поиска
+     * @return true, если поиск отменен; false, если он уже завершен
+     */
+    public boolean cancel() {
+        return result.cancel(false);
+    }
+
+    /**
+     * Проверка, завершен ли поиск (найдено место, поиск неудачен или отменен)
+     * @return true, если поиск больше не выполняется
+     */
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Установка текущего этапа поиска; если поиск уже отменен, этап отменяется сразу
+     * @param next Этап поиска
+     */
+    synchronized void follow(CompletableFuture<Location> next) {
+        stage = next;
+        if (result.isCancelled()) {
+            next.cancel(false);
+        }
+    }
+
+    /**
+     * Завершение поиска найденной локацией
+     * @param location Локация или null
+     * @return false, если поиск уже был отменен
+     */
+    boolean complete(Location location) {
+        return result.complete(location);
+    }
+
+    /**
+     * Завершение поиска с ошибкой
+     * @param ex Ошибка
+     */
+    void fail(Throwable ex) {
+        result.completeExceptionally(ex);
+    }
+
+    private void cancelStage() {
+        CompletableFuture<Location> current;
+        synchronized (this) {
+            current = stage;
+        }
+        if (current != null) {
+            current.cancel(false);
+        }
+    }
+}
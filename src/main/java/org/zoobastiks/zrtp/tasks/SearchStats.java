@@ -0,0 +1,279 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.zoobastiks.zrtp.Zrtp;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Скользящая статистика поиска по мирам.
+ * Хранит исходы последних кандидатов: успех или причину неудачи и была ли загрузка чанка.
+ * По ней подбираются количество попыток и параллельность поиска, а при обвале доли успехов
+ * срабатывает автомат: живые поиски в мире приостанавливаются, игроки обслуживаются только из пула.
+ * Потокобезопасна.
+ */
+public class SearchStats {
+    // Количество последних кандидатов в окне статистики
+    private static final int WINDOW = 256;
+
+    // Минимум кандидатов в окне, чтобы доверять доле успехов
+    private static final int MIN_SAMPLES = 32;
+
+    // Минимум кандидатов в окне для срабатывания автомата
+    private static final int BREAKER_SAMPLES = 64;
+
+    // Желаемая вероятность найти место в первой волне параллельных кандидатов
+    private static final double FIRST_WAVE_CONFIDENCE = 0.8;
+
+    // Ограничения бюджета попыток
+    private static final int MIN_ATTEMPTS = 8;
+    private static final int MAX_ATTEMPTS = 240;
+
+    /**
+     * Исход проверки одного кандидата
+     */
+    public enum Outcome {
+        SUCCESS("успех"),
+        NO_SAFE_COLUMN("в чанке нет безопасного места"),
+        PRESCREENED("чанк отброшен по файлу региона"),
+        NOT_GENERATED("чанк не сгенерирован"),
+        ERROR("ошибка загрузки чанка");
+
+        private final String description;
+
+        Outcome(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Получение описания исхода для журнала и статистики
+         * @return Описание
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Zrtp plugin;
+    private final Map<String, WorldStats> worlds = new ConcurrentHashMap<>();
+
+    private volatile boolean adaptive = true;
+    private volatile double breakerMinSuccess = 0.02;
+    private volatile long breakerCooldownMillis = 300_000L;
+
+    /**
+     * Конструктор статистики поиска
+     * @param plugin Экземпляр плагина
+     */
+    public SearchStats(Zrtp plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Установка параметров подстройки и автомата
+     * @param adaptive Подбирать ли попытки и параллельность по статистике
+     * @param breakerMinSuccess Доля успехов, ниже которой срабатывает автомат (0 - автомат выключен)
+     * @param breakerCooldownSeconds Через сколько секунд живые поиски пробуются снова
+     */
+    public void configure(boolean adaptive, double breakerMinSuccess, int breakerCooldownSeconds) {
+        this.adaptive = adaptive;
+        this.breakerMinSuccess = breakerMinSuccess;
+        this.breakerCooldownMillis = breakerCooldownSeconds * 1000L;
+    }
+
+    /**
+     * Запись исхода проверки кандидата
+     * @param worldName Имя мира
+     * @param outcome Исход
+     * @param loaded Загружался ли чанк в сервер
+     */
+    public void record(String worldName, Outcome outcome, boolean loaded) {
+        WorldStats stats = getStats(worldName);
+        Outcome dominant = null;
+        synchronized (stats) {
+            stats.add(outcome, loaded);
+
+            // Обвал доли успехов: живые поиски приостанавливаются
+            if (!stats.open && breakerMinSuccess > 0 && stats.size >= BREAKER_SAMPLES
+                    && stats.successRate() < breakerMinSuccess) {
+                stats.open = true;
+                stats.openedAt = System.currentTimeMillis();
+                dominant = stats.dominantFailure();
+            }
+        }
+        if (dominant != null) {
+            plugin.log(Level.WARNING, "Поиск в мире " + worldName + " приостановлен: успешных кандидатов меньше " +
+                       String.format("%.1f%%", breakerMinSuccess * 100) + ", основная причина - " +
+                       dominant.getDescription() + ". Телепортация работает только из пула");
+        }
+    }
+
+    /**
+     * Проверка, разрешены ли живые поиски в мире.
+     * После паузы автомат пропускает поиски снова и собирает статистику заново.
+     * @param worldName Имя мира
+     * @return false, если автомат сработал и пауза не истекла
+     */
+    public boolean allowLiveSearch(String worldName) {
+        WorldStats stats = worlds.get(worldName);
+        if (stats == null) return true;
+        synchronized (stats) {
+            if (!stats.open) return true;
+            if (System.currentTimeMillis() - stats.openedAt < breakerCooldownMillis) return false;
+            stats.open = false;
+            stats.reset();
+        }
+        plugin.log(Level.INFO, "Поиск в мире " + worldName + " возобновлен после паузы");
+        return true;
+    }
+
+    /**
+     * Проверка, приостановлены ли живые поиски в мире
+     * @param worldName Имя мира
+     * @return true, если автомат сработал
+     */
+    public boolean isSuspended(String worldName) {
+        WorldStats stats = worlds.get(worldName);
+        if (stats == null) return false;
+        synchronized (stats) {
+            return stats.open;
+        }
+    }
+
+    /**
+     * Бюджет попыток для группы запросов
+     * @param worldName Имя мира
+     * @param requests Количество запросов в группе
+     * @param base Бюджет на один запрос без статистики
+     * @return Количество кандидатов
+     */
+    public int attemptBudget(String worldName, int requests, int base) {
+        // Пока поиск приостановлен, фоновое пополнение пула проверяет минимум кандидатов
+        if (isSuspended(worldName)) return MIN_ATTEMPTS;
+
+        double rate = adaptive ? getSuccessRate(worldName) : -1;
+        if (rate < 0) {
+            return Math.min(base + (requests - 1) * base / 2, base * 8);
+        }
+        // Вдвое больше ожидаемого числа кандидатов на каждый запрос
+        double expected = requests / Math.max(rate, 0.01);
+        return (int) Math.max(MIN_ATTEMPTS, Math.min(MAX_ATTEMPTS, Math.ceil(expected * 2)));
+    }
+
+    /**
+     * Количество одновременно проверяемых кандидатов для группы запросов
+     * @param worldName Имя мира
+     * @param requests Количество запросов в группе
+     * @param configured Параллельность из настроек мира
+     * @return Количество кандидатов
+     */
+    public int parallelism(String worldName, int requests, int configured) {
+        int limit = configured * 4;
+        double rate = adaptive ? getSuccessRate(worldName) : -1;
+        if (rate < 0) {
+            return Math.min(configured + requests - 1, limit);
+        }
+        // Столько кандидатов, чтобы первая волна нашла место с заданной вероятностью:
+        // в мире, где почти все точки удачны, лишние чанки не загружаются
+        int wave = rate >= 1.0 ? 1
+            : (int) Math.ceil(Math.log(1 - FIRST_WAVE_CONFIDENCE) / Math.log(1 - Math.max(rate, 0.01)));
+        return Math.max(1, Math.min(limit, wave + requests - 1));
+    }
+
+    /**
+     * Получение доли успешных кандидатов мира
+     * @param worldName Имя мира
+     * @return Доля от 0 до 1 или -1, если данных недостаточно
+     */
+    public double getSuccessRate(String worldName) {
+        WorldStats stats = worlds.get(worldName);
+        if (stats == null) return -1;
+        synchronized (stats) {
+            return stats.size >= MIN_SAMPLES ? stats.successRate() : -1;
+        }
+    }
+
+    /**
+     * Описание статистики мира для команды статистики
+     * @param worldName Имя мира
+     * @return Строка статистики или null, если кандидатов еще не было
+     */
+    public String describe(String worldName) {
+        WorldStats stats = worlds.get(worldName);
+        if (stats == null) return null;
+        synchronized (stats) {
+            if (stats.size == 0) return null;
+            int successes = stats.counts[Outcome.SUCCESS.ordinal()];
+            Outcome dominant = stats.dominantFailure();
+            return "успешных кандидатов " + String.format("%.1f%%", stats.successRate() * 100) +
+                   " из " + stats.size +
+                   ", кандидатов на успех " + (successes > 0 ? String.format("%.1f", (double) stats.size / successes) : "-") +
+                   ", загрузок на успех " + (successes > 0 ? String.format("%.1f", (double) stats.loads / successes) : "-") +
+                   (dominant != null ? ", основная причина неудач: " + dominant.getDescription() : "") +
+                   (stats.open ? ", поиск приостановлен" : "");
+        }
+    }
+
+    /**
+     * Сброс статистики всех миров
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    private WorldStats getStats(String worldName) {
+        return worlds.computeIfAbsent(worldName, k -> new WorldStats());
+    }
+
+    /**
+     * Кольцевой буфер исходов одного мира (доступ под блокировкой объекта)
+     */
+    private static class WorldStats {
+        // Исход в младших битах, признак загрузки чанка в старшем
+        private final byte[] ring = new byte[WINDOW];
+        private final int[] counts = new int[Outcome.values().length];
+        private int next;
+        private int size;
+        private int loads;
+        private boolean open;
+        private long openedAt;
+
+        void add(Outcome outcome, boolean loaded) {
+            if (size == WINDOW) {
+                byte old = ring[next];
+                counts[old & 0x7F]--;
+                if (old < 0) loads--;
+            } else {
+                size++;
+            }
+            ring[next] = (byte) (outcome.ordinal() | (loaded ? 0x80 : 0));
+            counts[outcome.ordinal()]++;
+            if (loaded) loads++;
+            next = (next + 1) % WINDOW;
+        }
+
+        void reset() {
+            next = 0;
+            size = 0;
+            loads = 0;
+            Arrays.fill(counts, 0);
+        }
+
+        double successRate() {
+            return size > 0 ? (double) counts[Outcome.SUCCESS.ordinal()] / size : 0;
+        }
+
+        Outcome dominantFailure() {
+            Outcome dominant = null;
+            for (Outcome outcome : Outcome.values()) {
+                if (outcome == Outcome.SUCCESS || counts[outcome.ordinal()] == 0) continue;
+                if (dominant == null || counts[outcome.ordinal()] > counts[dominant.ordinal()]) {
+                    dominant = outcome;
+                }
+            }
+            return dominant;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.World;
+import org.zoobastiks.zrtp.api.LocationStrategy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр стратегий поиска.
+ * Порядок выбора: стратегия мира, стратегия типа мира из других плагинов,
+ * встроенная стратегия для собственного генератора, встроенная стратегия типа мира.
+ */
+public class StrategyRegistry {
+    private final LocationStrategy surface = new SurfaceStrategy();
+    private final LocationStrategy nether = new NetherStrategy();
+    private final LocationStrategy end = new EndStrategy();
+    private final LocationStrategy generator = new GeneratorStrategy();
+
+    // Зарегистрированные стратегии по имени мира и по типу мира
+    private final Map<String, LocationStrategy> byWorld = new ConcurrentHashMap<>();
+    private final Map<World.Environment, LocationStrategy> byEnvironment = new ConcurrentHashMap<>();
+
+    /**
+     * Регистрация стратегии для мира
+     * @param worldName Имя мира
+     * @param strategy Стратегия (null - снять регистрацию)
+     */
+    public void register(String worldName, LocationStrategy strategy) {
+        if (strategy == null) {
+            byWorld.remove(worldName);
+        } else {
+            byWorld.put(worldName, strategy);
+        }
+    }
+
+    /**
+     * Регистрация стратегии для типа мира
+     * @param environment Тип мира
+     * @param strategy Стратегия (null - снять регистрацию)
+     */
+    public void register(World.Environment environment, LocationStrategy strategy) {
+        if (strategy == null) {
+            byEnvironment.remove(environment);
+        } else {
+            byEnvironment.put(environment, strategy);
+        }
+    }
+
+    /**
+     * Выбор стратегии для мира
+     * @param world Мир
+     * @return Стратегия поиска
+     */
+    public LocationStrategy resolve(World world) {
+        LocationStrategy strategy = byWorld.get(world.getName());
+        if (strategy != null) return strategy;
+
+        strategy = byEnvironment.get(world.getEnvironment());
+        if (strategy != null) return strategy;
+
+        if (world.getGenerator() != null) return generator;
+
+        switch (world.getEnvironment()) {
+            case NETHER: return nether;
+            case THE_END: return end;
+            default: return surface;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.zoobastiks.zrtp.tasks;
+
+import org.bukkit.World;
+import org.zoobastiks.zrtp.api.ColumnView;
+import org.zoobastiks.zrtp.api.LocationStrategy;
+
+/**
+ * Стратегия для обычного мира: высота берется из карты высот,
+ * проверяется только несколько блоков вокруг поверхности вместо всей колонны.
+ */
+public class SurfaceStrategy implements LocationStrategy {
+    // Границы локального поиска вокруг поверхности, если сама поверхность небезопасна
+    private static final int LOCAL_SCAN_ABOVE = 3;
+    private static final int LOCAL_SCAN_BELOW = 8;
+
+    @Override
+    public String getName() {
+        return "surface";
+    }
+
+    @Override
+    public int getMinY(World world) {
+        return world.getMinHeight() + 1;
+    }
+
+    @Override
+    public int getMaxY(World world) {
+        return world.getMaxHeight() - 2;
+    }
+
+    @Override
+    public int findSafeY(ColumnView column, int minY, int maxY) {
+        int ground = column.getGroundHeight();
+
+        // Пустая колонна или поверхность ниже допустимой границы (например, пустота в Энде)
+        if (ground + 1 < minY) {
+            return -1;
+        }
+
+        // Поверхность - вода или лава, под ней безопасного места для ног нет
+        if (column.isLiquid(ground)) {
+            return -1;
+        }
+
+        // Карта без листвы указывает на бревно под кроной - это ствол дерева, а не земля
+        if (column.getCanopyHeight() > ground && column.isTrunk(ground)) {
+            return -1;
+        }
+
+        // Обычный случай: стоим на верхнем блоке. Под кроной дерева это земля,
+        // под нависающей скалой - верх скалы
+        int y = ground + 1;
+        if (y <= maxY && column.isSafeToStand(y)) {
+            return y;
+        }
+
+        // Ограниченный локальный поиск вокруг поверхности (снег, плиты, пещера под навесом)
+        int from = Math.min(ground + LOCAL_SCAN_ABOVE, maxY);
+        int to = Math.max(ground - LOCAL_SCAN_BELOW, minY - 1);
+        return column.scanDown(from, to);
+    }
+}
@@ -6,13 +6,23 @@ import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
 import org.zoobastiks.zrtp.Zrtp;
+import org.zoobastiks.zrtp.api.LocationStrategy;
 import org.zoobastiks.zrtp.common.Lang;
+import org.zoobastiks.zrtp.config.SearchCfg;
 import org.zoobastiks.zrtp.config.WorldCfg;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 /**
@@ -21,52 +31,157 @@ import java.util.logging.Level;
 public class TaskMgr {
     private final Zrtp plugin;
     private BukkitTask locationCacheTask;
+    private BukkitTask poolSaveTask;
+    
+    // Интервал сохранения пула в файл (5 минут)
+    private static final long POOL_SAVE_INTERVAL = 6000L;
+    
+    // Сохранение пула между перезапусками
+    private final PoolStore poolStore;
     
     // Хранение состояний телепортации игроков
     private final Map<UUID, TpInfo> teleportingPlayers = new ConcurrentHashMap<>();
     
-    // Кэш случайных локаций для быстрой телепортации
-    private final Map<String, Queue<Location>> locationCache = new HashMap<>();
+    // Пул заранее найденных локаций для быстрой телепортации
+    private final LocationPool locationPool;
     
     // Хранение задач телепортации
     private final Map<UUID, BukkitTask> teleportTasks = new ConcurrentHashMap<>();
     
+    // Сканеры колонн по имени мира (создаются в основном потоке)
+    private final Map<String, ColumnScanner> scanners = new ConcurrentHashMap<>();
+    
+    // Удержание чанков места назначения
+    private final ChunkTickets chunkTickets;
+    
+    // Объединение одновременных запросов в общие поиски
+    private final RequestCoalescer coalescer;
+    
+    // Генераторы случайных точек по имени мира (перестраиваются при перезагрузке)
+    private final Map<String, LocationSampler> samplers = new ConcurrentHashMap<>();
+    
+    // Порядок кандидатов пополнения пула по регионам, по имени мира
+    private final Map<String, RegionCursor> cursors = new ConcurrentHashMap<>();
+    
+    // Карта областей, в которых не нашлось безопасных мест
+    private final FailureMap failureMap;
+    
+    // Фильтры запрещенных биомов по имени мира
+    private final Map<String, BiomeFilter> biomeFilters = new ConcurrentHashMap<>();
+    
+    // Ограничение загрузки чанков по нагрузке сервера
+    private final LoadGovernor governor;
+    
+    // Индекс островов Энда
+    private final EndIslands endIslands;
+    
+    // Индекс уже сгенерированных чанков
+    private final RegionIndex regionIndex;
+    
+    // Чтение сохраненных чанков с диска и папки регионов по миру
+    private final RegionReader regionReader = new RegionReader();
+    private final Map<String, File> regionFolders = new ConcurrentHashMap<>();
+    
+    // Статистика исходов поиска по миру: бюджет попыток, параллельность и приостановка поиска
+    private final SearchStats searchStats;
+    
+    // Стратегии поиска высоты по миру и типу мира
+    private final StrategyRegistry strategies = new StrategyRegistry();
+    
+    // Таблица безопасности материалов (перестраивается при перезагрузке)
+    private volatile MaterialTable materialTable;
+    
+    // Исполнитель поиска: проверки снимков вне основного потока и ограничение одновременных поисков
+    private volatile SearchExecutor searchExecutor;
+    
+    // Исполнитель для обращений к миру в основном потоке
+    private final Executor mainExecutor;
+    
+    // Максимальное количество проверяемых кандидатов для одного запроса
+    private static final int MAX_ATTEMPTS = 30;
+    
+    // Сколько точек проверяется без загрузки чанка на одну загрузку чанка
+    private static final int PREFILTER_TRIES = 16;
+    
     /**
      * Конструктор менеджера задач
      * @param plugin Экземпляр плагина
      */
     public TaskMgr(Zrtp plugin) {
         this.plugin = plugin;
+        this.locationPool = new LocationPool(plugin.getPluginConfig().getSearchConfig().getPoolSize());
+        this.failureMap = new FailureMap(plugin);
+        this.endIslands = new EndIslands(plugin);
+        this.regionIndex = new RegionIndex(plugin);
+        this.poolStore = new PoolStore(plugin);
+        this.governor = new LoadGovernor(plugin);
+        this.searchStats = new SearchStats(plugin);
+        this.coalescer = new RequestCoalescer(plugin, this::searchBatch);
+        this.chunkTickets = new ChunkTickets(plugin);
+        this.searchExecutor = createSearchExecutor(plugin.getPluginConfig().getSearchConfig());
+        this.mainExecutor = task -> {
+            if (Bukkit.isPrimaryThread()) {
+                task.run();
+            } else {
+                Bukkit.getScheduler().runTask(plugin, task);
+            }
+        };
     }
     
     /**
      * Запуск всех задач
      */
     public void startTasks() {
-        // Задача для заполнения кэша локаций
-        locationCacheTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            for (String worldName : plugin.getPluginConfig().getEnabledWorldNames()) {
-                World world = Bukkit.getWorld(worldName);
-                if (world == null) continue;
-                
+        SearchCfg searchConfig = plugin.getPluginConfig().getSearchConfig();
+        locationPool.setCapacity(searchConfig.getPoolSize());
+        locationPool.setTtl(searchConfig.getPoolTtl());
+        
+        // Классификация материалов рассчитывается один раз на загрузку конфигурации
+        materialTable = new MaterialTable(searchConfig);
+        
+        // Исполнитель создается заново, так как ограничения могли измениться
+        searchExecutor.shutdown();
+        searchExecutor = createSearchExecutor(searchConfig);
+        scanners.clear();
+        biomeFilters.clear();
+        samplers.clear();
+        cursors.clear();
+        coalescer.setWindow(searchConfig.getCoalesceWindow());
+        chunkTickets.configure(searchConfig.getTicketRadius(), searchConfig.getTicketReleaseDelay());
+        failureMap.setDecay(searchConfig.getFailureDecay());
+        governor.start(searchConfig);
+        
+        // Статистика собирается заново: настройки мира могли измениться
+        searchStats.clear();
+        searchStats.configure(searchConfig.isAdaptive(), searchConfig.getBreakerMinSuccess(), 
+                              searchConfig.getBreakerCooldown());
+        
+        // Индексы островов Энда и сгенерированных чанков строятся заранее,
+        // чтобы уже первая телепортация выбирала подходящие чанки
+        endIslands.clear();
+        regionIndex.clear();
+        regionFolders.clear();
+        for (String worldName : plugin.getPluginConfig().getEnabledWorldNames()) {
+            World world = Bukkit.getWorld(worldName);
+            if (world != null) {
                 WorldCfg worldConfig = plugin.getPluginConfig().getWorldConfig(worldName);
-                if (!worldConfig.isEnabled()) continue;
-                
-                // Не генерируем больше 10 локаций для каждого мира
-                Queue<Location> locations = locationCache.computeIfAbsent(worldName, k -> new LinkedList<>());
-                if (locations.size() >= 10) continue;
-                
-                // Асинхронно находим безопасную локацию
-                findSafeLocation(world, worldConfig).thenAccept(location -> {
-                    if (location != null) {
-                        synchronized (locationCache) {
-                            Queue<Location> queue = locationCache.computeIfAbsent(worldName, k -> new LinkedList<>());
-                            queue.add(location);
-                        }
-                    }
-                });
+                endIslands.prepare(world, worldConfig);
+                regionIndex.prepare(world, worldConfig);
             }
-        }, 100L, 600L); // Первая попытка через 5 секунд, потом каждые 30 секунд
+        }
+        
+        // Задача для заполнения пула локаций (только выбирает миры, сам поиск асинхронный)
+        // Сохраненный пул загружается сразу: места выдаются с первой секунды после запуска,
+        // а проверяются заново при выдаче или фоновым пополнением
+        loadStoredPool();
+        poolSaveTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> savePool(true), 
+                                                          POOL_SAVE_INTERVAL, POOL_SAVE_INTERVAL);
+        
+        locationCacheTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            for (String worldName : plugin.getPluginConfig().getEnabledWorldNames()) {
+                refillPool(worldName);
+            }
+        }, 100L, searchConfig.getPoolRefillInterval()); // Первая попытка через 5 секунд
     }
     
     /**
@@ -76,6 +191,30 @@ public class TaskMgr {
         if (locationCacheTask != null && !locationCacheTask.isCancelled()) {
             locationCacheTask.cancel();
         }
+        if (poolSaveTask != null && !poolSaveTask.isCancelled()) {
+            poolSaveTask.cancel();
+        }
+        
+        // Незавершенные поиски мест назначения отменяются, уже найденные места возвращаются в пул
+        teleportingPlayers.values().forEach(this::releaseDestination);
+        
+        // Пул сохраняется до очистки и будет загружен при следующем запуске
+        savePool(false);
+        
+        // Найденные локации могут не соответствовать новой конфигурации
+        locationPool.clear();
+        
+        // Собираемые запросы завершаются без результата
+        coalescer.clear();
+        
+        // Ожидающие поиски отклоняются, текущие завершаются с ошибкой при следующей проверке
+        searchExecutor.shutdown();
+        
+        // Отложенные загрузки чанков отменяются
+        governor.stop();
+        
+        // Сохраняем карту неудачных областей на диск
+        failureMap.close();
         
         // Отменяем все задачи телепортации
         teleportTasks.values().forEach(task -> {
@@ -85,6 +224,160 @@ public class TaskMgr {
         });
         teleportTasks.clear();
         teleportingPlayers.clear();
+        
+        // Снимаем все тикеты плагина
+        chunkTickets.releaseAll();
+    }
+    
+    /**
+     * Создание исполнителя поиска по настройкам
+     * @param searchConfig Настройки поиска
+     * @return Исполнитель поиска
+     */
+    private SearchExecutor createSearchExecutor(SearchCfg searchConfig) {
+        return new SearchExecutor(searchConfig.getSearchThreads(), searchConfig.getMaxInFlight(), 
+                                  searchConfig.getSearchQueueSize());
+    }
+    
+    /**
+     * Пополнение пула локаций мира одной новой локацией
+     * @param worldName Имя мира
+     */
+    private void refillPool(String worldName) {
+        // Полный пул все равно проверяет по одному сохраненному месту за запуск
+        if (locationPool.isFull(worldName) && locationPool.storedSize(worldName) == 0) return;
+        
+        World world = Bukkit.getWorld(worldName);
+        if (world == null) return;
+        
+        WorldCfg worldConfig = plugin.getPluginConfig().getWorldConfig(worldName);
+        if (!worldConfig.isEnabled()) return;
+        
+        // Сервер нагружен - пул пополнится при следующем запуске задачи
+        if (governor.isRefillPaused()) return;
+        
+        // Для мира одновременно выполняется не больше одного пополнения
+        if (!locationPool.tryStartRefill(worldName)) return;
+        
+        // Сначала проверяется место из сохраненного пула: это одна загрузка чанка вместо поиска
+        Location stored = locationPool.pollStored(worldName);
+        if (stored != null) {
+            revalidate(world, worldConfig, stored, true).whenComplete((location, ex) -> {
+                if (ex != null) {
+                    // Проверка не выполнена (перегрузка, ошибка загрузки) - место остается в сохраненном пуле
+                    locationPool.offerStored(stored);
+                } else if (location != null) {
+                    locationPool.offer(location);
+                } else {
+                    locationPool.recordFailedCheck(worldName);
+                }
+                locationPool.finishRefill(worldName);
+            });
+            return;
+        }
+        
+        // Фоновое пополнение не спешит, поэтому кандидаты проверяются по одному.
+        // Если исполнитель занят, пополнение не ждет в очереди и будет повторено позже
+        findSafeLocation(world, worldConfig, 1).whenComplete((location, ex) -> {
+            if (location != null && locationPool.offer(location) && plugin.getPluginConfig().isDebugEnabled()) {
+                plugin.log(Level.INFO, "Пул локаций мира " + worldName + " пополнен: " + locationPool.size(worldName));
+            }
+            locationPool.finishRefill(worldName);
+        });
+    }
+    
+    /**
+     * Получение исполнителя основного потока: в основном потоке задача выполняется сразу,
+     * из других потоков - в ближайшем тике
+     * @return Исполнитель основного потока
+     */
+    public Executor getMainExecutor() {
+        return mainExecutor;
+    }
+    
+    /**
+     * Получение пула заранее найденных локаций
+     * @return Пул локаций
+     */
+    public LocationPool getLocationPool() {
+        return locationPool;
+    }
+    
+    /**
+     * Получение исполнителя поиска
+     * @return Исполнитель поиска
+     */
+    public SearchExecutor getSearchExecutor() {
+        return searchExecutor;
+    }
+    
+    /**
+     * Регистрация стратегии поиска для мира
+     * @param worldName Имя мира
+     * @param strategy Стратегия (null - вернуть встроенную)
+     */
+    public void registerStrategy(String worldName, LocationStrategy strategy) {
+        strategies.register(worldName, strategy);
+        // Сканеры пересоздаются с новой стратегией при следующей загрузке чанка
+        scanners.clear();
+    }
+    
+    /**
+     * Регистрация стратегии поиска для типа мира
+     * @param environment Тип мира
+     * @param strategy Стратегия (null - вернуть встроенную)
+     */
+    public void registerStrategy(World.Environment environment, LocationStrategy strategy) {
+        strategies.register(environment, strategy);
+        scanners.clear();
+    }
+    
+    /**
+     * Получение менеджера тикетов чанков
+     * @return Менеджер тикетов
+     */
+    public ChunkTickets getChunkTickets() {
+        return chunkTickets;
+    }
+    
+    /**
+     * Получение карты неудачных областей
+     * @return Карта неудачных областей
+     */
+    public FailureMap getFailureMap() {
+        return failureMap;
+    }
+    
+    /**
+     * Получение ограничителя загрузки чанков
+     * @return Ограничитель
+     */
+    public LoadGovernor getGovernor() {
+        return governor;
+    }
+    
+    /**
+     * Получение статистики поиска
+     * @return Статистика поиска
+     */
+    public SearchStats getSearchStats() {
+        return searchStats;
+    }
+    
+    /**
+     * Получение индекса сгенерированных чанков
+     * @return Индекс сгенерированных чанков
+     */
+    public RegionIndex getRegionIndex() {
+        return regionIndex;
+    }
+    
+    /**
+     * Получение индекса островов Энда
+     * @return Индекс островов
+     */
+    public EndIslands getEndIslands() {
+        return endIslands;
     }
     
     /**
@@ -168,7 +461,11 @@ public class TaskMgr {
         }
         
         // Добавляем игрока в список телепортирующихся сразу и сохраняем цену
-        teleportingPlayers.put(uuid, new TpInfo(player.getLocation(), effectDelay, price));
+        TpInfo info = new TpInfo(player.getLocation(), effectDelay, price);
+        teleportingPlayers.put(uuid, info);
+        
+        // Поиск места и загрузка его чанка идут во время отсчета, к телепортации результат уже готов
+        info.setDestination(prepareDestination(player.getWorld(), info));
         
         // Сообщение о начале телепортации
         plugin.getLang().sendAdvancedMessage(player, Lang.Keys.TELEPORT_STARTED, 
@@ -181,16 +478,17 @@ public class TaskMgr {
             plugin.log(java.util.logging.Level.INFO, "Эффекты завершены, выполняем телепортацию для " + player.getName());
             
             // Проверяем, что игрок все еще онлайн и все еще ожидает телепортацию
-            if (teleportingPlayers.containsKey(uuid)) {
-                // Удаляем игрока из списка телепортирующихся
-                teleportingPlayers.remove(uuid);
+            TpInfo pending = teleportingPlayers.remove(uuid);
+            if (pending != null) {
                 teleportTasks.remove(uuid);
                 
                 // Проверяем, что игрок все еще онлайн
                 Player teleportingPlayer = Bukkit.getPlayer(uuid);
                 if (teleportingPlayer != null && teleportingPlayer.isOnline()) {
                     // Выполняем телепортацию сразу после завершения всех эффектов
-                    executeTeleport(teleportingPlayer);
+                    executeTeleport(teleportingPlayer, pending);
+                } else {
+                    releaseDestination(pending);
                 }
             }
         });
@@ -199,75 +497,164 @@ public class TaskMgr {
     /**
      * Выполнить телепортацию игрока
      * @param player Игрок для телепортации
+     * @param info Информация о телепортации с поиском, запущенным во время отсчета
      */
-    private void executeTeleport(Player player) {
+    private void executeTeleport(Player player, TpInfo info) {
         UUID uuid = player.getUniqueId();
         
-        // Получаем мир игрока
-        World world = player.getWorld();
-        
-        // Ищем безопасную локацию
-        findRandomLocation(world).thenAccept(location -> {
+        // Обычно место уже найдено во время отсчета; иначе ждем завершения того же поиска
+        CompletableFuture<Location> search = info.getDestination() != null 
+            ? info.getDestination().getResult() : findRandomLocation(player.getWorld());
+        search.whenComplete((location, ex) -> mainExecutor.execute(() -> {
             // Проверяем, что игрок все еще онлайн
             Player onlinePlayer = Bukkit.getPlayer(uuid);
-            if (onlinePlayer != null && onlinePlayer.isOnline()) {
-                // Задача должна выполняться в основном потоке
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    if (location != null) {
-                        // Телепортируем игрока
-                        onlinePlayer.teleport(location);
-                        
-                        // Устанавливаем кулдаун
-                        plugin.getCooldowns().put(uuid, System.currentTimeMillis());
-                        
-                        // Отправляем сообщение об успешной телепортации
-                        plugin.getLang().sendAdvancedMessage(onlinePlayer, Lang.Keys.TELEPORT_SUCCESS);
-                        
-                        // Применяем эффекты после телепортации
-                        plugin.getPostTeleportEffects().applyPostTeleportEffects(onlinePlayer, location);
-                    } else {
-                        // Не удалось найти безопасное место
-                        plugin.getLang().sendAdvancedMessage(onlinePlayer, Lang.Keys.UNSAFE_LOCATION);
-                    }
-                });
+            if (onlinePlayer == null || !onlinePlayer.isOnline()) {
+                releaseDestination(info);
+                // Место от поиска, запущенного без отсчета, возвращается в пул здесь
+                if (info.getDestination() == null) {
+                    locationPool.recycle(location);
+                }
+                return;
             }
-        }).exceptionally(ex -> {
-            plugin.log(Level.WARNING, "Ошибка при поиске локации для телепортации", ex);
             
-            // Проверяем, что игрок все еще онлайн
-            Player onlinePlayer = Bukkit.getPlayer(uuid);
-            if (onlinePlayer != null && onlinePlayer.isOnline()) {
-                // Отправляем сообщение об ошибке
-                plugin.getLang().sendAdvancedMessage(onlinePlayer, Lang.Keys.UNSAFE_LOCATION);
+            if (location != null) {
+                completeTeleport(onlinePlayer, location, info);
+                return;
+            }
+            
+            // Исполнитель поиска перегружен - это не ошибка, просим повторить позже
+            boolean busy = ex != null && isSearchRejected(ex);
+            if (ex != null && !busy) {
+                plugin.log(Level.WARNING, "Ошибка при поиске локации для телепортации", ex);
             }
             
-            return null;
+            // Не удалось найти безопасное место - кулдаун не ставим, деньги возвращаем
+            releaseDestination(info);
+            plugin.getLang().sendAdvancedMessage(onlinePlayer, busy ? Lang.Keys.SEARCH_BUSY : Lang.Keys.UNSAFE_LOCATION);
+            refund(onlinePlayer, info.getPrice());
+        }));
+    }
+    
+    /**
+     * Запуск поиска места назначения. Как только место найдено,
+     * его чанк и кольцо вокруг удерживаются тикетами, чтобы они загрузились во время отсчета.
+     * @param world Мир
+     * @param info Информация о телепортации
+     * @return Поиск места назначения
+     */
+    private SearchHandle prepareDestination(World world, TpInfo info) {
+        SearchHandle destination = startSearch(world);
+        destination.getResult().thenAccept(location -> {
+            if (location == null) return;
+            mainExecutor.execute(() -> {
+                // Телепортация могла быть отменена, пока шел поиск
+                if (!info.isReleased() && info.getTickets() == null) {
+                    info.setTickets(chunkTickets.hold(location));
+                }
+            });
         });
+        return destination;
     }
     
     /**
-     * Завершение телепортации
+     * Возврат неиспользованного места назначения (вызывать в основном потоке).
+     * Тикеты снимаются, незавершенный поиск отменяется вместе с ожидающими загрузками чанков
+     * (найденное место достанется другому запросу группы), уже найденное место возвращается в пул.
+     * @param info Информация о телепортации
+     */
+    private void releaseDestination(TpInfo info) {
+        if (info.isReleased()) return;
+        info.setReleased(true);
+        chunkTickets.release(info.getTickets());
+        
+        SearchHandle destination = info.getDestination();
+        if (destination == null || destination.cancel()) return;
+        // Найденное место возвращается в пул со временем его проверки
+        destination.getResult().thenAccept(locationPool::recycle);
+    }
+    
+    /**
+     * Проверка, отклонен ли поиск из-за перегрузки исполнителя
+     * @param ex Ошибка поиска
+     * @return true, если поиск не был запущен из-за заполненной очереди
+     */
+    public static boolean isSearchRejected(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof RejectedExecutionException;
+    }
+    
+    /**
+     * Завершение телепортации: асинхронное перемещение игрока и учет результата
      * @param player Игрок
      * @param location Целевая локация
+     * @param info Информация о телепортации
      */
-    private void completeTeleport(Player player, Location location) {
+    private void completeTeleport(Player player, Location location, TpInfo info) {
         UUID uuid = player.getUniqueId();
         
-        // Телепортируем игрока
-        player.teleport(location);
-        
-        // Обновляем кулдаун
-        plugin.getCooldowns().put(uuid, System.currentTimeMillis());
-        
-        // Отправляем сообщение об успешной телепортации
-        plugin.getLang().sendAdvancedMessage(player, Lang.Keys.TELEPORT_SUCCESS);
-        
-        // Применяем эффекты после телепортации
-        plugin.getPostTeleportEffects().applyPostTeleportEffects(player, location);
+        // Тикеты переходят к телепортации и снимаются через несколько секунд после прибытия
+        info.setReleased(true);
+        teleportAsync(player, location, info.getTickets()).thenAccept(success -> {
+            if (success) {
+                // Обновляем кулдаун только после успешного перемещения
+                plugin.getCooldowns().put(uuid, System.currentTimeMillis());
+                
+                // Отправляем сообщение об успешной телепортации
+                plugin.getLang().sendAdvancedMessage(player, Lang.Keys.TELEPORT_SUCCESS);
+                
+                // Применяем эффекты после телепортации
+                plugin.getPostTeleportEffects().applyPostTeleportEffects(player, location);
+            } else {
+                // Телепортация не удалась (например, отменена другим плагином) - место еще пригодно
+                locationPool.recycle(location);
+                plugin.getLang().sendAdvancedMessage(player, Lang.Keys.UNSAFE_LOCATION);
+                refund(player, info.getPrice());
+            }
+        });
+    }
+    
+    /**
+     * Асинхронная телепортация игрока с удержанием чанков назначения (вызывать в основном потоке)
+     * @param player Игрок
+     * @param location Целевая локация
+     * @param tickets Уже удерживаемые чанки места (null - удержать сейчас)
+     * @return CompletableFuture с результатом: true, если игрок перемещен
+     */
+    public CompletableFuture<Boolean> teleportAsync(Player player, Location location, ChunkTickets.Hold tickets) {
+        ChunkTickets.Hold hold = tickets != null ? tickets : chunkTickets.hold(location);
+        return player.teleportAsync(location).handle((success, ex) -> {
+            if (ex != null) {
+                plugin.log(Level.WARNING, "Ошибка при телепортации игрока " + player.getName(), ex);
+            }
+            // Чанки держим еще несколько секунд, пока клиент загружает мир вокруг
+            chunkTickets.releaseLater(hold);
+            boolean moved = ex == null && Boolean.TRUE.equals(success);
+            // Использованное место больше не ждет возврата в пул
+            if (moved) {
+                locationPool.consume(location);
+            }
+            return moved;
+        });
+    }
+    
+    /**
+     * Возврат денег за несостоявшуюся телепортацию
+     * @param player Игрок
+     * @param amount Сумма для возврата
+     */
+    private void refund(Player player, double amount) {
+        if (amount <= 0 || !plugin.getEconomyManager().isEnabled() || !player.isOnline()) {
+            return;
+        }
         
-        // Очищаем данные
-        teleportingPlayers.remove(uuid);
-        teleportTasks.remove(uuid);
+        // Возвращаем деньги игроку
+        if (plugin.getEconomyManager().depositMoney(player, amount)) {
+            // Сообщаем игроку о возврате денег
+            String formattedPrice = plugin.getEconomyManager().formatMoney(amount);
+            plugin.getLang().sendAdvancedMessage(player, Lang.Keys.MONEY_REFUNDED, 
+                net.kyori.adventure.text.minimessage.tag.resolver.Placeholder.parsed("price", formattedPrice)
+            );
+        }
     }
     
     /**
@@ -284,40 +671,27 @@ public class TaskMgr {
      * @param uuid UUID игрока
      */
     public void cancelTeleport(UUID uuid) {
-        boolean wasTeleporting = false;
         double refundAmount = 0.0;
         
         // Отменяем текущую задачу, если она есть
-        if (teleportTasks.containsKey(uuid)) {
-            BukkitTask task = teleportTasks.get(uuid);
+        BukkitTask task = teleportTasks.remove(uuid);
+        if (task != null) {
             task.cancel();
-            teleportTasks.remove(uuid);
-            wasTeleporting = true;
         }
         
         // Удаляем игрока из списка телепортирующихся и получаем сумму для возврата
-        if (teleportingPlayers.containsKey(uuid)) {
-            TpInfo info = teleportingPlayers.get(uuid);
-            if (info != null) {
-                refundAmount = info.getPrice();
-            }
-            teleportingPlayers.remove(uuid);
-            wasTeleporting = true;
+        TpInfo info = teleportingPlayers.remove(uuid);
+        if (info != null) {
+            refundAmount = info.getPrice();
+            
+            // Найденное во время отсчета место возвращается в пул, тикеты снимаются
+            releaseDestination(info);
         }
         
         // Возвращаем деньги игроку, если они были сняты
-        if (refundAmount > 0 && plugin.getEconomyManager().isEnabled()) {
-            Player player = Bukkit.getPlayer(uuid);
-            if (player != null && player.isOnline()) {
-                // Возвращаем деньги игроку
-                if (plugin.getEconomyManager().depositMoney(player, refundAmount)) {
-                    // Сообщаем игроку о возврате денег
-                    String formattedPrice = plugin.getEconomyManager().formatMoney(refundAmount);
-                    plugin.getLang().sendAdvancedMessage(player, Lang.Keys.MONEY_REFUNDED, 
-                        net.kyori.adventure.text.minimessage.tag.resolver.Placeholder.parsed("price", formattedPrice)
-                    );
-                }
-            }
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null) {
+            refund(player, refundAmount);
         }
         
         // Не отправляем сообщение здесь, это делается в EventsListener
@@ -327,467 +701,767 @@ public class TaskMgr {
      * Поиск безопасной локации для телепортации (внутренний метод)
      * @param world Мир
      * @param config Конфигурация мира
+     * @param parallelism Количество одновременно проверяемых кандидатов
      * @return CompletableFuture с результатом - локация или null
      */
-    private CompletableFuture<Location> findSafeLocation(World world, WorldCfg config) {
-        CompletableFuture<Location> result = new CompletableFuture<>();
+    private CompletableFuture<Location> findSafeLocation(World world, WorldCfg config, int parallelism) {
+        endIslands.prepare(world, config);
+        regionIndex.prepare(world, config);
         
-        // Запускаем асинхронный поиск локации
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> 
-            testLocationsSequentially(world, config, 0, 30, result)
-        );
+        // Фоновому пополнению хватает обычного бюджета; в мире с низкой долей успехов он сокращается
+        int maxAttempts = Math.min(MAX_ATTEMPTS, searchStats.attemptBudget(world.getName(), 1, MAX_ATTEMPTS));
         
-        return result;
+        // Запускаем асинхронный поиск локации, если у исполнителя есть свободное место
+        return searchExecutor.submit(() -> {
+            CompletableFuture<Location> result = new CompletableFuture<>();
+            testLocationsParallel(world, config, maxAttempts, parallelism, new LocationBatch(List.of(result), true));
+            return result;
+        }, false);
     }
     
     /**
-     * Последовательно проверяет случайные локации на безопасность
-     * 
-     * @param world Мир для проверки
-     * @param worldConfig Конфигурация мира
-     * @param attemptCount Текущая попытка
-     * @param maxAttempts Максимальное количество попыток
-     * @param result Результат проверки
+     * Общий поиск для группы одновременных запросов мира (вызывается в основном потоке).
+     * Сначала запросы обслуживаются из пула, для оставшихся запускается один поиск,
+     * который раздает найденные места по очереди.
+     * @param world Мир
+     * @param requests Запросы локаций
      */
-    private void testLocationsSequentially(World world, WorldCfg worldConfig, int attemptCount, int maxAttempts, CompletableFuture<Location> result) {
-        // Если превышено максимальное количество попыток, завершаем поиск
-        if (attemptCount >= maxAttempts || result.isDone()) {
-            if (!result.isDone()) {
-                result.complete(null);
+    private void searchBatch(World world, List<CompletableFuture<Location>> requests) {
+        String worldName = world.getName();
+        WorldCfg worldConfig = plugin.getPluginConfig().getWorldConfig(worldName);
+        LocationBatch batch = new LocationBatch(requests, false);
+        endIslands.prepare(world, worldConfig);
+        regionIndex.prepare(world, worldConfig);
+        
+        // Пул мог пополниться, пока собиралась группа
+        while (!batch.isDone()) {
+            Location pooled = locationPool.poll(worldName, false);
+            if (pooled == null) break;
+            if (!batch.deliver(pooled)) {
+                locationPool.recycle(pooled);
             }
+        }
+        if (batch.isDone()) return;
+        
+        // Доля успехов в мире обвалилась - живой поиск не запускается, игроки ждут пополнения пула.
+        // Это не перегрузка исполнителя: запросы получают "место не найдено", а не search-busy
+        if (!searchStats.allowLiveSearch(worldName)) {
+            batch.finish();
             return;
         }
         
-        // Генерируем случайные координаты
-        Location randomLocation = generateRandomLocation(world, worldConfig);
+        // Попытки и параллельность подбираются по доле успешных кандидатов мира,
+        // группе выделяется больше, но не пропорционально ее размеру без ограничения
+        int size = batch.remaining();
+        int parallelism = searchStats.parallelism(worldName, size, worldConfig.getSearchParallelism());
+        int maxAttempts = searchStats.attemptBudget(worldName, size, MAX_ATTEMPTS);
+        if (size > 1) {
+            plugin.log(Level.INFO, "Общий поиск для " + size + " запросов в мире " + worldName);
+        }
         
-        // Получаем безопасную высоту без блокировки основного потока
-        getSafeHeightAsync(randomLocation).thenAccept(y -> {
-            // Устанавливаем Y координату
-            randomLocation.setY(y);
-            
-            // Считаем все локации безопасными по умолчанию
-            // Minecraft сам предотвратит телепортацию в опасные места
-            if (!result.isDone()) {
-                result.complete(randomLocation);
-            }
-        }).exceptionally(ex -> {
-            // В случае ошибки пробуем следующую локацию
-            plugin.log(Level.WARNING, "Ошибка при определении безопасной высоты: " + ex.getMessage());
-            if (!result.isDone()) {
-                Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> 
-                    testLocationsSequentially(world, worldConfig, attemptCount + 1, maxAttempts, result), 1L);
-            }
-            return null;
+        searchExecutor.<Void>submit(() -> {
+            testLocationsParallel(world, worldConfig, maxAttempts, parallelism, batch);
+            return batch.getCompletion();
+        }, true).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                batch.fail(ex);
+            }
         });
     }
     
     /**
-     * Получает безопасную Y-координату для телепортации
-     * @param location Локация
-     * @return CompletableFuture с Y-координатой
+     * Проверяет случайные локации на безопасность, держа в работе до parallelism кандидатов одновременно.
+     * Найденные места раздаются запросам группы; когда все запросы обслужены, поиск завершается,
+     * а места от остальных кандидатов уходят в пул.
+     * При parallelism = 1 кандидаты проверяются строго последовательно.
+     * 
+     * @param world Мир для проверки
+     * @param worldConfig Конфигурация мира
+     * @param maxAttempts Максимальное количество кандидатов
+     * @param parallelism Количество одновременно проверяемых кандидатов
+     * @param batch Группа запросов
      */
-    private CompletableFuture<Integer> getSafeHeightAsync(Location location) {
-        CompletableFuture<Integer> result = new CompletableFuture<>();
+    private void testLocationsParallel(World world, WorldCfg worldConfig, int maxAttempts, int parallelism, LocationBatch batch) {
+        AtomicInteger launched = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
         
-        // Выбираем безопасную высоту для телепортации
-        World world = location.getWorld();
+        int initial = Math.max(1, Math.min(parallelism, maxAttempts));
+        for (int i = 0; i < initial; i++) {
+            launchCandidate(world, worldConfig, maxAttempts, launched, inFlight, batch);
+        }
+    }
+    
+    /**
+     * Запуск проверки одного случайного кандидата
+     * 
+     * @param world Мир для проверки
+     * @param worldConfig Конфигурация мира
+     * @param maxAttempts Максимальное количество кандидатов
+     * @param launched Счетчик запущенных кандидатов
+     * @param inFlight Счетчик кандидатов в работе
+     * @param batch Группа запросов
+     */
+    private void launchCandidate(World world, WorldCfg worldConfig, int maxAttempts, 
+                                 AtomicInteger launched, AtomicInteger inFlight, LocationBatch batch) {
+        // Если поиск завершен или попытки исчерпаны, новых кандидатов не запускаем
+        if (batch.isDone() || launched.getAndIncrement() >= maxAttempts) {
+            if (inFlight.get() == 0) {
+                batch.finish();
+            }
+            return;
+        }
+        inFlight.incrementAndGet();
         
-        // Запускаем асинхронную задачу для поиска безопасной высоты
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                int x = location.getBlockX();
-                int z = location.getBlockZ();
-                int maxY = world.getMaxHeight() - 2; // -2 чтобы гарантировать место для головы
-                int minY = world.getMinHeight() + 1;
-                int safeY = -1;
-                
-                // Отладочное сообщение выводим только в режиме отладки
-                if (plugin.getPluginConfig().isDebugEnabled()) {
-                    plugin.log(Level.INFO, "Поиск безопасной высоты в мире " + world.getName() + 
-                               " на координатах X:" + x + ", Z:" + z);
-                }
-                
-                // Выбираем высоту в зависимости от мира
-                if (world.getEnvironment() == World.Environment.NETHER) {
-                    // Для Нижнего мира ищем безопасную высоту, сначала в центре мира (избегая лавы)
-                    // Поиск сверху вниз, начиная с безопасной высоты
-                    for (int y = 100; y > 30; y--) {
-                        if (isSafeToStand(world, x, y, z)) {
-                            safeY = y;
-                            if (plugin.getPluginConfig().isDebugEnabled()) {
-                                plugin.log(Level.INFO, "Найдена безопасная высота в Нижнем мире: Y=" + safeY);
-                            }
-                            break;
-                        }
-                    }
-                    
-                    // Если не нашли безопасную высоту, повторяем поиск снизу вверх
-                    if (safeY == -1) {
-                        for (int y = 31; y < 120; y++) {
-                            if (isSafeToStand(world, x, y, z)) {
-                                safeY = y;
-                                if (plugin.getPluginConfig().isDebugEnabled()) {
-                                    plugin.log(Level.INFO, "Найдена безопасная высота в Нижнем мире (2-я попытка): Y=" + safeY);
-                                }
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // Если по-прежнему не нашли, используем значение по умолчанию
-                    if (safeY == -1) {
-                        // Выводим предупреждение только в режиме отладки
-                        if (plugin.getPluginConfig().isDebugEnabled()) {
-                            plugin.log(Level.WARNING, "Не удалось найти безопасную высоту в Нижнем мире на X:" + x + ", Z:" + z);
-                        }
-                        safeY = 64;
-                    }
-                    
-                } else if (world.getEnvironment() == World.Environment.THE_END) {
-                    // Для Энда ищем безопасную высоту сверху вниз
-                    // ОБРАТИТЕ ВНИМАНИЕ: В Энде часто нет безопасной высоты, поэтому выводим меньше сообщений
-                    for (int y = 100; y > 40; y--) {
-                        if (isSafeToStand(world, x, y, z)) {
-                            safeY = y;
-                            if (plugin.getPluginConfig().isDebugEnabled()) {
-                                plugin.log(Level.INFO, "Найдена безопасная высота в Энде: Y=" + safeY);
-                            }
-                            break;
-                        }
-                    }
-                    
-                    // Если не нашли безопасную высоту, ищем от центра островов
-                    if (safeY == -1) {
-                        for (int y = 60; y > 40; y--) {
-                            if (isSafeToStand(world, x, y, z)) {
-                                safeY = y;
-                                if (plugin.getPluginConfig().isDebugEnabled()) {
-                                    plugin.log(Level.INFO, "Найдена безопасная высота в Энде (2-я попытка): Y=" + safeY);
-                                }
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // Если по-прежнему не нашли, используем значение по умолчанию
-                    if (safeY == -1) {
-                        // НЕ выводим предупреждение для Края, так как это нормальная ситуация
-                        safeY = 48;
-                    }
-                    
-                } else {
-                    // Для обычного мира ищем безопасную высоту сверху вниз
-                    // Начинаем с максимальной высоты и идем вниз
-                    for (int y = maxY; y > minY; y--) {
-                        if (isSafeToStand(world, x, y, z)) {
-                            safeY = y;
-                            if (plugin.getPluginConfig().isDebugEnabled()) {
-                                plugin.log(Level.INFO, "Найдена безопасная высота в обычном мире: Y=" + safeY);
-                            }
-                            break;
-                        }
-                    }
-                    
-                    // Если не нашли, дополнительная проверка от уровня моря вниз
-                    if (safeY == -1) {
-                        for (int y = 63; y > minY; y--) {
-                            if (isSafeToStand(world, x, y, z)) {
-                                safeY = y;
-                                if (plugin.getPluginConfig().isDebugEnabled()) {
-                                    plugin.log(Level.INFO, "Найдена безопасная высота в обычном мире (2-я попытка): Y=" + safeY);
-                                }
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // Если не нашли, проверяем еще раз, строго проверяя каждую высоту
-                    if (safeY == -1) {
-                        for (int y = maxY; y > minY; y--) {
-                            if (isVerySafeToStand(world, x, y, z)) {
-                                safeY = y;
-                                if (plugin.getPluginConfig().isDebugEnabled()) {
-                                    plugin.log(Level.INFO, "Найдена очень безопасная высота: Y=" + safeY);
-                                }
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // Если всё еще не нашли безопасную высоту, пытаемся найти верхний блок мира
-                    if (safeY == -1) {
-                        safeY = world.getHighestBlockYAt(x, z) + 1;
-                        if (plugin.getPluginConfig().isDebugEnabled()) {
-                            plugin.log(Level.INFO, "Использую высочайший блок мира: Y=" + safeY);
-                        }
-                        
-                        // Проверяем, что на этой высоте действительно безопасно
-                        if (!isSafeToStand(world, x, safeY, z)) {
-                            // Если нет, используем уровень моря
-                            if (plugin.getPluginConfig().isDebugEnabled()) {
-                                plugin.log(Level.WARNING, "Не удалось найти безопасную высоту в обычном мире на X:" + x + ", Z:" + z);
-                            }
-                            safeY = 63;
-                        }
-                    }
-                }
-                
-                // Финальная проверка безопасности
-                if (safeY > 0) {
-                    if (!isSafeToStand(world, x, safeY, z)) {
-                        if (plugin.getPluginConfig().isDebugEnabled()) {
-                            plugin.log(Level.WARNING, "Финальная проверка: Высота Y=" + safeY + 
-                                       " не безопасна, использую принудительно безопасный уровень");
-                        }
-                        
-                        // В случае опасности, сбрасываем на безопасное значение
-                        if (world.getEnvironment() == World.Environment.NETHER) {
-                            safeY = 64;
-                        } else if (world.getEnvironment() == World.Environment.THE_END) {
-                            safeY = 48;
-                        } else {
-                            safeY = 63;
-                        }
-                    }
+        // Генерируем случайные координаты, отбрасывая известные неудачные области
+        // и точки в запрещенных биомах без загрузки чанка
+        BiomeFilter biomes = getBiomeFilter(world, worldConfig);
+        Location randomLocation = null;
+        for (int i = 0; i < PREFILTER_TRIES && randomLocation == null; i++) {
+            Location candidate = nextCandidate(world, worldConfig, batch);
+            if (!isRejectedEarly(world, worldConfig, biomes, candidate)) {
+                randomLocation = candidate;
+            }
+        }
+        
+        // Все точки отброшены заранее - попытка считается неудачной без загрузки чанка.
+        // Иначе проверяем чанк выбранной точки без блокировки основного потока
+        CompletableFuture<Location> check = randomLocation == null 
+            ? CompletableFuture.completedFuture(null) 
+            : harvestChunkAsync(world, worldConfig, randomLocation.getBlockX(), randomLocation.getBlockZ(), batch);
+        check.whenComplete((location, ex) -> {
+            if (ex != null && !(ex.getCause() instanceof CancellationException) && !isSearchRejected(ex)) {
+                plugin.log(Level.WARNING, "Ошибка при проверке локации: " + ex.getMessage());
+                searchStats.record(world.getName(), SearchStats.Outcome.ERROR, false);
+            }
+            
+            // Все запросы уже обслужены другими кандидатами - сохраняем найденное место в пул.
+            // Время проверки выданного места запоминается, чтобы неиспользованное место вернулось в пул
+            if (location != null) {
+                locationPool.markIssued(location, System.currentTimeMillis());
+                if (!batch.deliver(location)) {
+                    locationPool.recycle(location);
                 }
-                
-                // Возвращаем найденную высоту
-                final int finalSafeY = safeY;
-                if (plugin.getPluginConfig().isDebugEnabled()) {
-                    plugin.log(Level.INFO, "Итоговая безопасная высота: Y=" + finalSafeY);
+            }
+            
+            // Дополнительные места из проверенного чанка достаются остальным запросам группы
+            while (!batch.isDone()) {
+                Location pooled = locationPool.poll(world.getName(), false);
+                if (pooled == null) break;
+                if (!batch.deliver(pooled)) {
+                    locationPool.recycle(pooled);
                 }
-                result.complete(finalSafeY);
-            } catch (Exception e) {
-                plugin.log(Level.WARNING, "Ошибка при определении безопасной высоты: " + e.getMessage());
-                // В случае ошибки используем стандартные значения
-                if (world.getEnvironment() == World.Environment.NETHER) {
-                    result.complete(64);
-                } else if (world.getEnvironment() == World.Environment.THE_END) {
-                    result.complete(48);
-                } else {
-                    result.complete(63);
+            }
+            
+            // Потоки поиска перегружены - новые кандидаты не запускаются;
+            // если других кандидатов нет, запросы группы получают отказ
+            if (ex != null && isSearchRejected(ex)) {
+                if (inFlight.decrementAndGet() == 0) {
+                    batch.fail(ex);
                 }
+                return;
             }
+            
+            inFlight.decrementAndGet();
+            launchCandidate(world, worldConfig, maxAttempts, launched, inFlight, batch);
         });
+    }
+    
+    /**
+     * Выбор следующего кандидата. Фоновое пополнение в режиме region берет кандидатов по регионам,
+     * поиски игроков всегда получают случайные точки
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param batch Группа запросов
+     * @return Кандидат
+     */
+    private Location nextCandidate(World world, WorldCfg worldConfig, LocationBatch batch) {
+        SearchCfg searchConfig = plugin.getPluginConfig().getSearchConfig();
+        if (batch.isBackground() && searchConfig.isRegionOrderedRefill()) {
+            RegionCursor cursor = cursors.computeIfAbsent(world.getName(), 
+                k -> new RegionCursor(worldConfig, searchConfig.getRefillRegionChunks()));
+            Location ordered = cursor.next(world, (chunkX, chunkZ) -> acceptsChunk(world, worldConfig, chunkX, chunkZ));
+            if (ordered != null) {
+                return ordered;
+            }
+        }
+        return generateRandomLocation(world, worldConfig);
+    }
+    
+    /**
+     * Проверка чанка-кандидата по индексам, как при случайном выборе:
+     * чанк без суши в Энде и несгенерированный чанк при политиках генерации пропускаются
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @return true, если чанк стоит проверять
+     */
+    private boolean acceptsChunk(World world, WorldCfg worldConfig, int chunkX, int chunkZ) {
+        if (failureMap.isFailed(world.getName(), worldConfig, chunkX << 4, chunkZ << 4)) return false;
+        if (endIslands.isBarren(world, worldConfig, chunkX, chunkZ)) return false;
         
-        return result;
+        WorldCfg.Generation generation = worldConfig.getGeneration();
+        boolean generatedOnly = generation == WorldCfg.Generation.GENERATED_ONLY || (generation == WorldCfg.Generation.PREFER_GENERATED 
+            && ThreadLocalRandom.current().nextDouble() < worldConfig.getGeneratedRatio());
+        return !generatedOnly || !regionIndex.isMissing(world, worldConfig, chunkX, chunkZ);
     }
     
     /**
-     * Проверяет, безопасно ли стоять на указанной позиции (блок ниже твердый, два блока сверху пустые)
+     * Проверка кандидата без загрузки чанка
      * @param world Мир
-     * @param x X-координата
-     * @param y Y-координата (позиция ног)
-     * @param z Z-координата
-     * @return true, если позиция безопасна для телепортации
-     */
-    private boolean isSafeToStand(World world, int x, int y, int z) {
-        try {
-            // Проверяем, что блок ниже твердый (можно стоять)
-            org.bukkit.block.Block blockBelow = world.getBlockAt(x, y - 1, z);
-            
-            // Блок ниже должен быть твердым
-            if (!blockBelow.getType().isSolid()) {
-                return false;
+     * @param worldConfig Конфигурация мира
+     * @param biomes Фильтр биомов мира
+     * @param location Кандидат
+     * @return true, если кандидат в известной неудачной области или в запрещенном биоме
+     */
+    private boolean isRejectedEarly(World world, WorldCfg worldConfig, BiomeFilter biomes, Location location) {
+        int x = location.getBlockX();
+        int z = location.getBlockZ();
+        return failureMap.isFailed(world.getName(), worldConfig, x, z) || biomes.isPredictedForbidden(x, z);
+    }
+    
+    /**
+     * Асинхронная загрузка чанка и создание его неизменяемого снимка с картами высот.
+     * Обращение к миру выполняется в основном потоке, результат можно обрабатывать в любом потоке.
+     * @param world Мир
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @param includeBiome Копировать ли в снимок данные о биомах
+     * @param generate Генерировать ли чанк, если его еще нет
+     * @param owner Группа запросов, для которой загружается чанк
+     * @return CompletableFuture со снимком чанка или null, если чанк не сгенерирован, а генерация запрещена
+     */
+    private CompletableFuture<ChunkSurface> loadChunkSurfaceAsync(World world, int chunkX, int chunkZ, boolean includeBiome, 
+                                                               boolean generate, LocationBatch owner) {
+        CompletableFuture<ChunkSurface> result = new CompletableFuture<>();
+        
+        mainExecutor.execute(() -> {
+            // Поиск уже завершен - чанк больше не нужен, не запрашиваем его загрузку
+            if (owner.isDone()) {
+                result.completeExceptionally(new CancellationException());
+                return;
             }
             
-            // Блок ниже не должен быть опасным
-            if (isUnsafeBlock(blockBelow.getType())) {
-                return false;
-            }
+            // Сканер выбирается здесь, пока мы в основном потоке, и передается вместе со снимком
+            ColumnScanner scanner = getScanner(world);
             
-            // Проверяем, что два блока выше пустые (не задохнется и влезет)
-            org.bukkit.block.Block feet = world.getBlockAt(x, y, z);
-            org.bukkit.block.Block head = world.getBlockAt(x, y + 1, z);
+            // Загруженный чанк ничего не стоит, загрузка и генерация ждут бюджета тика
+            CompletableFuture<Void> permit = world.isChunkLoaded(chunkX, chunkZ) 
+                ? CompletableFuture.completedFuture(null) 
+                : governor.acquire(owner.isBackground());
             
-            // Блоки для ног и головы должны быть воздухом
-            if (!feet.getType().isAir() || !head.getType().isAir()) {
-                return false;
-            }
+            // Группа обслужена или все ее запросы отменены - ожидающая загрузка снимается из очереди
+            owner.getCompletion().thenRun(() -> permit.cancel(false));
             
-            // Не должно быть жидкостей
-            if (blockBelow.isLiquid() || feet.isLiquid() || head.isLiquid()) {
-                return false;
+            permit.thenCompose(ignored -> {
+                // Пока загрузка ждала бюджета, поиск мог завершиться
+                if (owner.isDone()) {
+                    throw new CancellationException();
+                }
+                return world.getChunkAtAsync(chunkX, chunkZ, generate);
+            }).thenAccept(chunk -> {
+                // Колбэк getChunkAtAsync выполняется в основном потоке
+                if (chunk == null && !generate) {
+                    // Чанк есть в файле региона, но не догенерирован - индекс ошибся, это промах
+                    regionIndex.markMissing(world, chunkX, chunkZ);
+                }
+                result.complete(chunk != null ? new ChunkSurface(chunk, includeBiome, scanner) : null);
+            }).exceptionally(ex -> {
+                result.completeExceptionally(ex);
+                return null;
+            });
+        });
+        
+        return result;
+    }
+    
+    /**
+     * Загружает чанк выбранной точки и проверяет все его колонны за один проход.
+     * Лучшее место возвращается для текущего запроса, остальные добавляются в пул.
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param x X-координата выбранной точки
+     * @param z Z-координата выбранной точки
+     * @param owner Группа запросов, для которой проверяется чанк
+     * @return CompletableFuture с локацией или null, если в чанке нет безопасного места
+     */
+    private CompletableFuture<Location> harvestChunkAsync(World world, WorldCfg worldConfig, int x, int z, LocationBatch owner) {
+        String worldName = world.getName();
+        int spacing = plugin.getPluginConfig().getSearchConfig().getHarvestSpacing();
+        BiomeFilter biomes = getBiomeFilter(world, worldConfig);
+        
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        boolean generate = worldConfig.getGeneration() != WorldCfg.Generation.GENERATED_ONLY;
+        
+        // Сохраненный чанк сначала проверяется по файлу региона в потоке поиска:
+        // заведомо неподходящий чанк не загружается в сервер
+        CompletableFuture<ChunkSurface> surfaceFuture;
+        AtomicBoolean prescreened = new AtomicBoolean();
+        if (plugin.getPluginConfig().getSearchConfig().isPrescreen()) {
+            CompletableFuture<Boolean> screen;
+            try {
+                screen = CompletableFuture.supplyAsync(() -> isRejectedOnDisk(world, worldConfig, biomes, chunkX, chunkZ), 
+                                                       searchExecutor);
+            } catch (RejectedExecutionException e) {
+                // Очередь потоков поиска переполнена - кандидат завершается отказом, а не ошибкой
+                screen = CompletableFuture.failedFuture(e);
             }
-            
-            return true;
-        } catch (Exception e) {
-            return false;
+            surfaceFuture = screen
+                .thenCompose(rejected -> {
+                    if (rejected) {
+                        prescreened.set(true);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return loadChunkSurfaceAsync(world, chunkX, chunkZ, !biomes.isEmpty(), generate, owner);
+                });
+        } else {
+            surfaceFuture = loadChunkSurfaceAsync(world, chunkX, chunkZ, !biomes.isEmpty(), generate, owner);
+        }
+        
+        // Проверка колонн выполняется вне основного потока по снимку чанка
+        AtomicReference<SearchStats.Outcome> failure = new AtomicReference<>();
+        return surfaceFuture.thenApplyAsync(surface -> {
+            // Чанк отброшен по файлу региона или не сгенерирован, а генерация запрещена политикой мира
+            if (surface == null) {
+                failure.set(prescreened.get() ? SearchStats.Outcome.PRESCREENED : SearchStats.Outcome.NOT_GENERATED);
+                return null;
+            }
+            failure.set(SearchStats.Outcome.NO_SAFE_COLUMN);
+            return harvestSurface(world, worldConfig, biomes, surface, x, z, spacing);
+        }, searchExecutor).thenCompose(best -> 
+            // Рядом с точкой места нет - перед новой случайной точкой проверяются уже загруженные соседи
+            best != null ? CompletableFuture.completedFuture(best) : searchNeighbours(world, worldConfig, biomes, x, z, owner)
+        ).thenApply(best -> {
+            SearchStats.Outcome outcome = failure.get();
+            searchStats.record(worldName, best != null ? SearchStats.Outcome.SUCCESS : outcome, 
+                               outcome == SearchStats.Outcome.NO_SAFE_COLUMN);
+            return best != null ? toLocation(world, best) : null;
+        });
+    }
+    
+    /**
+     * Проверка колонн снимка чанка: дополнительные места уходят в пул,
+     * чанк без безопасных колонн отмечается в карте неудачных областей
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param biomes Фильтр биомов мира
+     * @param surface Снимок чанка
+     * @param x X-координата выбранной точки
+     * @param z Z-координата выбранной точки
+     * @param spacing Шаг между дополнительными местами (0 - без дополнительных мест)
+     * @return Ближайшее к точке место не дальше max-distance или null
+     */
+    private ColumnScanner.Spot harvestSurface(World world, WorldCfg worldConfig, BiomeFilter biomes, ChunkSurface surface, 
+                                              int x, int z, int spacing) {
+        String worldName = world.getName();
+        int maxDistance = plugin.getPluginConfig().getSearchConfig().getHarvestMaxDistance();
+        ColumnScanner.HarvestResult harvest = surface.getScanner().harvest(surface, x, z, worldConfig, biomes, 
+                                                                           spacing, maxDistance);
+        
+        // Дополнительные места из уже загруженного чанка отправляем в пул
+        int pooled = 0;
+        for (ColumnScanner.Spot spot : harvest.getExtra()) {
+            if (!locationPool.offer(toLocation(world, spot))) break;
+            pooled++;
+        }
+        
+        // Запоминаем чанки без безопасных мест, чтобы не загружать их снова
+        ColumnScanner.Spot best = harvest.getBest();
+        if (harvest.getSafeColumns() > 0) {
+            failureMap.markSucceeded(worldName, worldConfig, surface.getChunkX(), surface.getChunkZ());
+        } else {
+            failureMap.markFailed(worldName, worldConfig, surface.getChunkX(), surface.getChunkZ());
+        }
+        if (plugin.getPluginConfig().isDebugEnabled()) {
+            plugin.log(Level.INFO, "Проверка чанка " + surface.getChunkX() + ", " + surface.getChunkZ() + 
+                       " в мире " + worldName + " для точки X:" + x + ", Z:" + z + 
+                       " - " + (best != null ? "Y=" + best.getY() : "безопасное место не найдено") + 
+                       ", добавлено в пул: " + pooled);
         }
+        return best;
     }
     
     /**
-     * Усиленная проверка безопасности для особо сложных случаев
+     * Поиск места рядом с выбранной точкой в уже загруженных соседних чанках.
+     * Соседи проверяются по удалению от точки, пока более дальний чанк не может дать место ближе найденного.
+     * Новые чанки не загружаются, места дальше max-distance не выбираются, поэтому случайность точки сохраняется.
+     * Места из соседей в пул не добавляются: эти чанки загружены и могли уже быть проверены.
      * @param world Мир
-     * @param x X-координата
-     * @param y Y-координата (позиция ног)
-     * @param z Z-координата
-     * @return true, если позиция очень безопасна для телепортации
-     */
-    private boolean isVerySafeToStand(World world, int x, int y, int z) {
-        // Основная проверка безопасности
-        if (!isSafeToStand(world, x, y, z)) {
-            return false;
+     * @param worldConfig Конфигурация мира
+     * @param biomes Фильтр биомов мира
+     * @param x X-координата выбранной точки
+     * @param z Z-координата выбранной точки
+     * @param owner Группа запросов, для которой идет поиск
+     * @return CompletableFuture с ближайшим местом или null
+     */
+    private CompletableFuture<ColumnScanner.Spot> searchNeighbours(World world, WorldCfg worldConfig, BiomeFilter biomes, 
+                                                                   int x, int z, LocationBatch owner) {
+        SearchCfg searchConfig = plugin.getPluginConfig().getSearchConfig();
+        int maxDistance = searchConfig.getHarvestMaxDistance();
+        int rings = Math.min(searchConfig.getHarvestNeighborChunks(), (maxDistance + 15) >> 4);
+        if (rings == 0) {
+            return CompletableFuture.completedFuture(null);
         }
         
-        try {
-            // Дополнительные проверки
-            
-            // Проверяем бо́льшую область вокруг для обнаружения лавы или других опасностей
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dz = -1; dz <= 1; dz++) {
-                    // Проверяем блок под игроком и вокруг
-                    org.bukkit.block.Block block = world.getBlockAt(x + dx, y - 1, z + dz);
-                    if (block.isLiquid() || isUnsafeBlock(block.getType())) {
-                        return false;
-                    }
-                    
-                    // Проверяем уровень ног и головы
-                    if (dx == 0 && dz == 0) continue; // Уже проверено в isSafeToStand
-                    
-                    if (!block.getType().isAir() && block.getType().isSolid()) {
-                        return false;
-                    }
-                    
-                    block = world.getBlockAt(x + dx, y + 1, z + dz);
-                    if (!block.getType().isAir() && block.getType().isSolid()) {
-                        return false;
+        // В основном потоке только отбираются координаты загруженных соседей, от ближайшего к точке
+        CompletableFuture<List<long[]>> neighbours = new CompletableFuture<>();
+        mainExecutor.execute(() -> {
+            List<long[]> candidates = new ArrayList<>();
+            if (!owner.isDone()) {
+                int centerX = x >> 4;
+                int centerZ = z >> 4;
+                for (int chunkZ = centerZ - rings; chunkZ <= centerZ + rings; chunkZ++) {
+                    for (int chunkX = centerX - rings; chunkX <= centerX + rings; chunkX++) {
+                        if (chunkX == centerX && chunkZ == centerZ) continue;
+                        long distance = chunkDistanceSquared(chunkX, chunkZ, x, z);
+                        if (distance > (long) maxDistance * maxDistance || !world.isChunkLoaded(chunkX, chunkZ) 
+                            || failureMap.isFailed(world.getName(), worldConfig, chunkX << 4, chunkZ << 4)) continue;
+                        candidates.add(new long[] {distance, chunkX, chunkZ});
                     }
                 }
+                candidates.sort(Comparator.comparingLong(candidate -> candidate[0]));
             }
-            
-            return true;
-        } catch (Exception e) {
-            return false;
+            neighbours.complete(candidates);
+        });
+        
+        return neighbours.thenCompose(candidates -> searchNeighbour(world, worldConfig, biomes, x, z, owner, candidates, 0, null));
+    }
+    
+    /**
+     * Проверка очередного соседа: снимок создается в основном потоке, колонны проверяются в потоке поиска.
+     * Следующий сосед снимается, только если он может дать место ближе уже найденного.
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param biomes Фильтр биомов мира
+     * @param x X-координата выбранной точки
+     * @param z Z-координата выбранной точки
+     * @param owner Группа запросов, для которой идет поиск
+     * @param candidates Соседи {удаление, chunkX, chunkZ}, отсортированные по удалению
+     * @param index Номер проверяемого соседа
+     * @param best Ближайшее найденное место или null
+     * @return CompletableFuture с ближайшим местом или null
+     */
+    private CompletableFuture<ColumnScanner.Spot> searchNeighbour(World world, WorldCfg worldConfig, BiomeFilter biomes, 
+                                                                  int x, int z, LocationBatch owner, List<long[]> candidates, 
+                                                                  int index, ColumnScanner.Spot best) {
+        long bestDistance = Long.MAX_VALUE;
+        if (best != null) {
+            long dx = best.getX() - x;
+            long dz = best.getZ() - z;
+            bestDistance = dx * dx + dz * dz;
+        }
+        // Соседи отсортированы по удалению: дальше ближайшего найденного места искать нечего
+        if (index >= candidates.size() || candidates.get(index)[0] >= bestDistance) {
+            return CompletableFuture.completedFuture(best);
         }
+        
+        int chunkX = (int) candidates.get(index)[1];
+        int chunkZ = (int) candidates.get(index)[2];
+        CompletableFuture<ChunkSurface> snapshot = new CompletableFuture<>();
+        mainExecutor.execute(() -> {
+            // Поиск завершен или чанк успели выгрузить - сосед пропускается
+            if (owner.isDone() || !world.isChunkLoaded(chunkX, chunkZ)) {
+                snapshot.complete(null);
+                return;
+            }
+            snapshot.complete(new ChunkSurface(world.getChunkAt(chunkX, chunkZ), !biomes.isEmpty(), getScanner(world)));
+        });
+        
+        long limit = bestDistance;
+        return snapshot.thenApplyAsync(surface -> {
+            if (surface == null) return best;
+            ColumnScanner.Spot spot = harvestSurface(world, worldConfig, biomes, surface, x, z, 0);
+            if (spot == null) return best;
+            long dx = spot.getX() - x;
+            long dz = spot.getZ() - z;
+            return dx * dx + dz * dz < limit ? spot : best;
+        }, searchExecutor).thenCompose(next -> 
+            owner.isDone() ? CompletableFuture.completedFuture(next) 
+                : searchNeighbour(world, worldConfig, biomes, x, z, owner, candidates, index + 1, next));
     }
     
     /**
-     * Проверяет, является ли блок небезопасным для стояния на нем
-     * @param material Материал блока
-     * @return true, если блок опасен
+     * Квадрат расстояния от точки до ближайшего блока чанка
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @param x X-координата точки
+     * @param z Z-координата точки
+     * @return Квадрат расстояния в блоках (0, если точка внутри чанка)
      */
-    private boolean isUnsafeBlock(org.bukkit.Material material) {
-        String name = material.name();
+    private static long chunkDistanceSquared(int chunkX, int chunkZ, int x, int z) {
+        long dx = Math.max(0, Math.max((chunkX << 4) - x, x - ((chunkX << 4) + 15)));
+        long dz = Math.max(0, Math.max((chunkZ << 4) - z, z - ((chunkZ << 4) + 15)));
+        return dx * dx + dz * dz;
+    }
+    
+    /**
+     * Проверка сохраненного чанка по файлу региона без загрузки в сервер.
+     * Чанк отбрасывается, если все его биомы запрещены или, для поиска по поверхности,
+     * каждая колонна покрыта жидкостью. Несохраненный или недогенерированный чанк не отбрасывается.
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param biomes Фильтр биомов мира
+     * @param chunkX X-координата чанка
+     * @param chunkZ Z-координата чанка
+     * @return true, если в чанке заведомо нет безопасного места
+     */
+    private boolean isRejectedOnDisk(World world, WorldCfg worldConfig, BiomeFilter biomes, int chunkX, int chunkZ) {
+        File folder = regionFolders.computeIfAbsent(world.getName(), k -> RegionIndex.getRegionFolder(world));
+        RegionReader.ChunkInfo info = regionReader.read(folder, chunkX, chunkZ, true);
+        if (info == null || !info.isFull()) {
+            return false;
+        }
+        
+        boolean rejected = !biomes.isEmpty() && !info.getBiomes().isEmpty() 
+            && info.getBiomes().stream().allMatch(biomes::isForbidden);
+        
+        // Поверхностная стратегия отбрасывает колонны с жидкостью наверху; стратегия генератора
+        // может искать и под водой, поэтому для нее такая проверка не подходит
+        LocationStrategy strategy = strategies.resolve(world);
+        if (!rejected && info.hasHeightmaps() && strategy instanceof SurfaceStrategy && !(strategy instanceof GeneratorStrategy)) {
+            int worldHeight = world.getMaxHeight() - world.getMinHeight();
+            rejected = true;
+            for (int i = 0; i < 256 && rejected; i++) {
+                rejected = info.isLiquidSurface(i & 15, i >> 4, worldHeight);
+            }
+        }
         
-        // Опасные блоки для стояния на них
-        return name.contains("LAVA") || 
-               name.contains("FIRE") || 
-               name.contains("CACTUS") || 
-               name.contains("MAGMA") || 
-               name.contains("POWDER_SNOW") || 
-               name.equals("CAMPFIRE") || 
-               name.equals("SOUL_CAMPFIRE") ||
-               name.contains("POINTED_DRIPSTONE") ||
-               name.contains("ANVIL") ||
-               name.contains("TNT") ||
-               name.contains("SAND") ||  // Песок может упасть
-               name.contains("GRAVEL"); // Гравий может упасть
+        if (rejected) {
+            failureMap.markFailed(world.getName(), worldConfig, chunkX, chunkZ);
+            if (plugin.getPluginConfig().isDebugEnabled()) {
+                plugin.log(Level.INFO, "Чанк " + chunkX + ", " + chunkZ + " в мире " + world.getName() + 
+                           " отброшен по файлу региона");
+            }
+        }
+        return rejected;
+    }
+    
+    /**
+     * Получение сканера колонн мира (вызывать в основном потоке, где сбрасывается кэш сканеров)
+     * @param world Мир
+     * @return Сканер с текущей стратегией мира
+     */
+    private ColumnScanner getScanner(World world) {
+        return scanners.computeIfAbsent(world.getName(), k -> new ColumnScanner(world, materialTable, strategies.resolve(world)));
     }
     
     /**
-     * Найти случайную безопасную локацию в указанном мире
+     * Получение фильтра запрещенных биомов мира (создается при первом обращении)
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @return Фильтр биомов
+     */
+    private BiomeFilter getBiomeFilter(World world, WorldCfg worldConfig) {
+        return biomeFilters.computeIfAbsent(world.getName(), k -> new BiomeFilter(plugin, world, worldConfig));
+    }
+    
+    /**
+     * Преобразование безопасного места в локацию по центру блока
+     * @param world Мир
+     * @param spot Безопасное место
+     * @return Локация
+     */
+    private Location toLocation(World world, ColumnScanner.Spot spot) {
+        return new Location(world, spot.getX() + 0.5, spot.getY(), spot.getZ() + 0.5);
+    }
+    
+    /**
+     * Найти случайную безопасную локацию в указанном мире.
+     * Отмена возвращенного CompletableFuture останавливает поиск.
      * @param world Мир для поиска
      * @return CompletableFuture с найденной локацией или null, если не найдена
      */
     public CompletableFuture<Location> findRandomLocation(World world) {
-        CompletableFuture<Location> result = new CompletableFuture<>();
+        return startSearch(world).getResult();
+    }
+    
+    /**
+     * Запуск отменяемого поиска случайной безопасной локации
+     * @param world Мир для поиска
+     * @return Поиск
+     */
+    public SearchHandle startSearch(World world) {
+        SearchHandle handle = new SearchHandle();
+        continueSearch(world, handle);
+        return handle;
+    }
+    
+    /**
+     * Следующий этап поиска: пул, сохраненный пул или общий поиск мира
+     * @param world Мир для поиска
+     * @param handle Поиск
+     */
+    private void continueSearch(World world, SearchHandle handle) {
+        if (handle.isDone()) return;
         
         // Получаем настройки мира
         WorldCfg worldConfig = plugin.getPluginConfig().getWorldConfig(world.getName());
         if (!worldConfig.isEnabled()) {
             // Мир отключен для телепортации
-            result.complete(null);
-            return result;
+            handle.complete(null);
+            return;
         }
         
-        // Запускаем асинхронно поиск локации
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> 
-            testLocationsSequentially(world, worldConfig, 0, 30, result));
+        // Сначала пробуем взять готовую локацию из пула
+        Location pooled = locationPool.poll(world.getName());
+        if (pooled != null) {
+            if (plugin.getPluginConfig().isDebugEnabled()) {
+                plugin.log(Level.INFO, "Локация для мира " + world.getName() + " взята из пула, осталось: " + 
+                           locationPool.size(world.getName()));
+            }
+            // Пополняем пул на место выданной локации
+            Bukkit.getScheduler().runTask(plugin, () -> refillPool(world.getName()));
+            if (!handle.complete(pooled)) {
+                locationPool.recycle(pooled);
+            }
+            return;
+        }
         
+        // Место из сохраненного пула проверяется заново; если оно больше не подходит, берется следующее
+        Location stored = locationPool.pollStored(world.getName());
+        if (stored != null) {
+            CompletableFuture<Location> check = revalidate(world, worldConfig, stored, false);
+            handle.follow(check);
+            check.whenComplete((location, ex) -> {
+                if (check.isCancelled()) {
+                    // Проверка не выполнена - место остается в сохраненном пуле
+                    locationPool.offerStored(stored);
+                } else if (ex != null) {
+                    // Сервер перегружен или чанк не загрузился - место не проверено и остается в пуле,
+                    // а запрос получает ту же ошибку, что и живой поиск
+                    locationPool.offerStored(stored);
+                    handle.fail(ex);
+                } else if (location == null) {
+                    // Место больше не подходит - это не попадание; промах учтет пустой пул
+                    locationPool.recordFailedCheck(world.getName());
+                    continueSearch(world, handle);
+                } else {
+                    locationPool.recordHit(world.getName());
+                    locationPool.markIssued(location, System.currentTimeMillis());
+                    if (!handle.complete(location)) {
+                        locationPool.recycle(location);
+                    }
+                }
+            });
+            return;
+        }
+        
+        // Пул пуст - запрос присоединяется к общему поиску мира.
+        // При перегрузке поиск ждет в очереди исполнителя или отклоняется.
+        // Отмененный запрос выходит из группы, и группа без запросов прекращает поиск
+        CompletableFuture<Location> request = coalescer.request(world);
+        handle.follow(request);
+        request.whenComplete((location, ex) -> {
+            if (ex != null) {
+                handle.fail(ex);
+            } else if (!handle.complete(location) && location != null) {
+                locationPool.recycle(location);
+            }
+        });
+    }
+    
+    /**
+     * Повторная проверка места из сохраненного пула по новому снимку чанка
+     * @param world Мир
+     * @param worldConfig Конфигурация мира
+     * @param location Место из сохраненного пула
+     * @param background true для фоновой проверки при пополнении пула
+     * @return CompletableFuture с местом или null, если оно больше не безопасно;
+     *         завершается с ошибкой, если проверку не удалось выполнить
+     */
+    private CompletableFuture<Location> revalidate(World world, WorldCfg worldConfig, Location location, boolean background) {
+        CompletableFuture<Location> result = new CompletableFuture<>();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        BiomeFilter biomes = getBiomeFilter(world, worldConfig);
+        
+        // Чанк не генерируется: сохраненное место могло быть только в существующем чанке
+        loadChunkSurfaceAsync(world, x >> 4, z >> 4, !biomes.isEmpty(), false, 
+                              new LocationBatch(List.of(result), background))
+            .thenApplyAsync(surface -> surface != null 
+                && surface.getScanner().verify(surface, x, y, z, worldConfig, biomes) ? location : null, 
+                searchExecutor)
+            .whenComplete((verified, ex) -> {
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(verified);
+                }
+            });
         return result;
     }
     
     /**
-     * Асинхронно проверяет безопасность локации
-     * @param location Локация для проверки
-     * @return CompletableFuture с результатом проверки (true - безопасна)
+     * Сохранение пула в файл
+     * @param async Записывать ли файл асинхронно (при остановке запись синхронная)
+     */
+    private void savePool(boolean async) {
+        SearchCfg searchConfig = plugin.getPluginConfig().getSearchConfig();
+        Map<World, List<Location>> worlds = new HashMap<>();
+        Map<String, Integer> fingerprints = new HashMap<>();
+        for (String worldName : locationPool.getWorldNames()) {
+            World world = Bukkit.getWorld(worldName);
+            List<Location> locations = locationPool.snapshot(worldName);
+            if (world == null || locations.isEmpty()) continue;
+            worlds.put(world, locations);
+            fingerprints.put(worldName, PoolStore.fingerprint(plugin.getPluginConfig().getWorldConfig(worldName), searchConfig));
+        }
+        
+        if (async) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> poolStore.save(worlds, fingerprints));
+        } else {
+            poolStore.save(worlds, fingerprints);
+        }
+    }
+    
+    /**
+     * Загрузка сохраненного пула: места попадают в пул как непроверенные
      */
-    private CompletableFuture<Boolean> checkLocationSafetyAsync(Location location) {
-        CompletableFuture<Boolean> result = new CompletableFuture<>();
+    private void loadStoredPool() {
+        SearchCfg searchConfig = plugin.getPluginConfig().getSearchConfig();
+        Map<String, Integer> fingerprints = new HashMap<>();
+        for (String worldName : plugin.getPluginConfig().getEnabledWorldNames()) {
+            fingerprints.put(worldName, PoolStore.fingerprint(plugin.getPluginConfig().getWorldConfig(worldName), searchConfig));
+        }
         
-        // Запускаем асинхронную проверку безопасности
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                // Устанавливаем таймаут для проверки
-                Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
-                    if (!result.isDone()) {
-                        // Если проверка не завершена за 1 секунду, считаем локацию небезопасной
-                        plugin.log(Level.WARNING, "Проверка безопасности локации превысила таймаут");
-                        result.complete(false);
-                    }
-                }, 20L);
-                
-                // Проверяем, безопасна ли локация для телепортации
-                int x = location.getBlockX();
-                int y = location.getBlockY();
-                int z = location.getBlockZ();
-                World world = location.getWorld();
-                
-                boolean safe = isSafeToStand(world, x, y, z);
-                
-                // Проверяем запрещенные биомы
-                if (safe) {
-                    org.bukkit.block.Block block = world.getBlockAt(x, y, z);
-                    org.bukkit.block.Biome biome = block.getBiome();
-                    
-                    WorldCfg worldConfig = plugin.getPluginConfig().getWorldConfig(world.getName());
-                    Set<String> forbiddenBiomes = worldConfig.getForbiddenBiomes();
-                    
-                    if (forbiddenBiomes.contains(biome.toString())) {
-                        safe = false;
-                    }
+        int loaded = 0;
+        for (List<Location> locations : poolStore.load(fingerprints).values()) {
+            for (Location location : locations) {
+                if (locationPool.offerStored(location)) {
+                    loaded++;
                 }
-                
-                result.complete(safe);
-            } catch (Exception e) {
-                plugin.log(Level.WARNING, "Ошибка при проверке безопасности локации: " + e.getMessage());
-                result.complete(false);
             }
-        });
-        
-        return result;
+        }
+        if (loaded > 0) {
+            plugin.log(Level.INFO, "Загружено сохраненных локаций пула: " + loaded);
+        }
     }
     
     /**
-     * Генерация случайной локации в пределах указанного радиуса
+     * Генерация случайной локации в области телепортации мира
      * @param world Мир
      * @param config Конфигурация мира
      * @return Случайная локация с Y=100 (будет скорректирована позже)
      */
     private Location generateRandomLocation(World world, WorldCfg config) {
-        // Получаем центр (если есть) или используем центр мира
-        Location center = config.getCenter();
-        if (center == null) {
-            center = new Location(world, 0, 0, 0);
+        // Кандидаты из уже сгенерированных чанков: всегда для generated-only и с заданной долей для prefer-generated
+        WorldCfg.Generation generation = config.getGeneration();
+        if (generation == WorldCfg.Generation.GENERATED_ONLY || (generation == WorldCfg.Generation.PREFER_GENERATED 
+                && ThreadLocalRandom.current().nextDouble() < config.getGeneratedRatio())) {
+            Location generated = regionIndex.sample(world, config);
+            if (generated != null) {
+                return generated;
+            }
         }
         
-        double x = center.getX();
-        double z = center.getZ();
-        
-        // Генерируем случайный радиус от minRadius до maxRadius
-        double radius = config.getMinRadius() + Math.random() * (config.getMaxRadius() - config.getMinRadius());
-        
-        // Генерируем случайный угол
-        double angle = Math.random() * 2 * Math.PI;
-        
-        // Вычисляем координаты
-        double newX = x + radius * Math.cos(angle);
-        double newZ = z + radius * Math.sin(angle);
-        
-        // Создаем локацию с Y=100 (будет скорректирована позже)
-        return new Location(world, newX, 100, newZ);
+        // В Энде кандидаты берутся только из чанков с сушей
+        Location island = endIslands.sample(world, config);
+        if (island != null) {
+            return island;
+        }
+        return samplers.computeIfAbsent(world.getName(), k -> new LocationSampler(config)).sample(world);
     }
     
     /**
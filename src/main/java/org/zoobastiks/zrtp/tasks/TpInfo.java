@@ -11,6 +11,13 @@ public class TpInfo {
     private final long startTime;
     private final double price;
     
+    // Поиск места назначения, запущенный одновременно с отсчетом
+    private volatile SearchHandle destination;
+    
+    // Удерживаемые чанки места назначения и признак того, что место больше не нужно
+    private ChunkTickets.Hold tickets;
+    private boolean released;
+    
     /**
      * Конструктор класса информации о телепортации
      * @param startLocation Начальная локация
@@ -65,6 +72,54 @@ public class TpInfo {
         return price;
     }
     
+    /**
+     * Получение поиска места назначения
+     * @return Поиск или null, если поиск не запускался
+     */
+    public SearchHandle getDestination() {
+        return destination;
+    }
+    
+    /**
+     * Установка поиска места назначения
+     * @param destination Поиск места назначения
+     */
+    public void setDestination(SearchHandle destination) {
+        this.destination = destination;
+    }
+    
+    /**
+     * Получение удерживаемых чанков места назначения
+     * @return Удержание или null, если место еще не найдено
+     */
+    public ChunkTickets.Hold getTickets() {
+        return tickets;
+    }
+    
+    /**
+     * Установка удерживаемых чанков места назначения
+     * @param tickets Удержание
+     */
+    public void setTickets(ChunkTickets.Hold tickets) {
+        this.tickets = tickets;
+    }
+    
+    /**
+     * Проверка, освобождено ли место назначения
+     * @return true, если место использовано или возвращено
+     */
+    public boolean isReleased() {
+        return released;
+    }
+    
+    /**
+     * Установка признака освобождения места назначения
+     * @param released true, если место использовано или возвращено
+     */
+    public void setReleased(boolean released) {
+        this.released = released;
+    }
+    
     /**
      * Проверка, истекло ли время задержки
      * @return true если время задержки истекло